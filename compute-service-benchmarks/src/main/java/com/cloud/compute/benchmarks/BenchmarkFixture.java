@@ -0,0 +1,143 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import com.cloud.compute.config.BulkProperties;
+import com.cloud.compute.config.CacheProperties;
+import com.cloud.compute.config.ComputeServiceConfig;
+import com.cloud.compute.config.ConcurrencyLimitProperties;
+import com.cloud.compute.config.EventProperties;
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.config.IdempotencyProperties;
+import com.cloud.compute.config.MongoClientProperties;
+import com.cloud.compute.config.PlacementProperties;
+import com.cloud.compute.config.ProvisioningProperties;
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.config.TenantProperties;
+import com.cloud.compute.config.WriteBehindProperties;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.service.impl.AdaptiveConcurrencyLimiter;
+import com.cloud.compute.service.impl.BulkLifecycleExecutor;
+import com.cloud.compute.service.impl.ChangeSequence;
+import com.cloud.compute.service.impl.FairTaskExecutor;
+import com.cloud.compute.service.impl.FakeHypervisorDriver;
+import com.cloud.compute.service.impl.FleetStatsTracker;
+import com.cloud.compute.service.impl.IdempotencyStore;
+import com.cloud.compute.service.impl.MongoCallLimiter;
+import com.cloud.compute.service.impl.PlacementEngine;
+import com.cloud.compute.service.impl.ProvisioningPipeline;
+import com.cloud.compute.service.impl.VMCache;
+import com.cloud.compute.service.impl.VMEventBus;
+import com.cloud.compute.service.impl.VMOperationMetrics;
+import com.cloud.compute.service.impl.VMServiceImpl;
+import com.cloud.compute.service.impl.VMTransitionEngine;
+import com.cloud.compute.service.impl.WriteBehindBuffer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Wires {@link VMServiceImpl} by hand against {@link InMemoryVMRepository}, the way the
+ * Spring context would, minus the Resilience4j proxies.
+ */
+public final class BenchmarkFixture implements AutoCloseable {
+    private final InMemoryVMRepository repository;
+    private final Executor executor;
+    private final VMServiceImpl service;
+
+    private BenchmarkFixture(ExecutorProperties.Mode mode, long latencyMicros) {
+        ExecutorProperties executorProperties = new ExecutorProperties();
+        executorProperties.setMode(mode);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.repository = new InMemoryVMRepository(latencyMicros);
+        this.executor = new ComputeServiceConfig().taskExecutor(executorProperties, meterRegistry);
+
+        // Disabled: the benchmarks drive load past any sane limit and measure throughput, not shedding.
+        ConcurrencyLimitProperties concurrencyProperties = new ConcurrencyLimitProperties();
+        concurrencyProperties.setEnabled(false);
+        AdaptiveConcurrencyLimiter concurrencyLimiter =
+                new AdaptiveConcurrencyLimiter(concurrencyProperties, meterRegistry);
+        MongoCallLimiter mongoCallLimiter = new MongoCallLimiter(executorProperties, concurrencyLimiter, meterRegistry);
+        VMCache vmCache = new VMCache(new CacheProperties(), meterRegistry);
+        FleetStatsTracker fleetStats = new FleetStatsTracker(repository);
+        QueryProperties queryProperties = new QueryProperties();
+        ChangeSequence changeSequence =
+                new ChangeSequence(queryProperties, executorProperties, new MongoClientProperties());
+        VMEventBus eventBus = new VMEventBus(new EventProperties(), meterRegistry);
+        WriteBehindBuffer writeBehind = new WriteBehindBuffer(
+                new WriteBehindProperties(), repository, mongoCallLimiter, vmCache, changeSequence, meterRegistry);
+        VMTransitionEngine transitionEngine =
+                new VMTransitionEngine(repository, mongoCallLimiter, vmCache, fleetStats, writeBehind, changeSequence,
+                        eventBus);
+
+        // Every benchmark call is the anonymous tenant; only the global concurrency cap applies.
+        TenantProperties tenantProperties = new TenantProperties();
+        tenantProperties.setMaxQueuedPerTenant(Integer.MAX_VALUE);
+        FairTaskExecutor fairExecutor = new FairTaskExecutor(tenantProperties, executor, meterRegistry);
+
+        BulkLifecycleExecutor bulkLifecycleExecutor = new BulkLifecycleExecutor(repository, mongoCallLimiter,
+                vmCache, fleetStats, writeBehind, changeSequence, eventBus, new BulkProperties(), fairExecutor);
+
+        // Disabled: created VMs stay PENDING, which the lifecycle benchmarks seed around anyway.
+        ProvisioningProperties provisioningProperties = new ProvisioningProperties();
+        provisioningProperties.setEnabled(false);
+        ProvisioningPipeline provisioningPipeline = new ProvisioningPipeline(provisioningProperties, repository,
+                new FakeHypervisorDriver(provisioningProperties), mongoCallLimiter, vmCache, fleetStats, writeBehind,
+                changeSequence, eventBus, meterRegistry);
+
+        this.service = new VMServiceImpl(repository, transitionEngine, bulkLifecycleExecutor, vmCache, writeBehind,
+                new IdempotencyStore(new IdempotencyProperties()), fleetStats,
+                new PlacementEngine(new PlacementProperties(), fleetStats), provisioningPipeline, changeSequence,
+                eventBus, queryProperties, mongoCallLimiter, concurrencyLimiter,
+                new VMOperationMetrics(meterRegistry), fairExecutor);
+    }
+
+    public static BenchmarkFixture create(ExecutorProperties.Mode mode, long latencyMicros) {
+        return new BenchmarkFixture(mode, latencyMicros);
+    }
+
+    public InMemoryVMRepository repository() {
+        return repository;
+    }
+
+    public VMServiceImpl service() {
+        return service;
+    }
+
+    /** Stores a VM directly in the given state, bypassing createVM's PENDING default. */
+    public VM seed(String name, VM.VMState state) {
+        VM vm = newVM(name);
+        vm.setState(state);
+        return repository.save(vm);
+    }
+
+    public static VM newVM(String name) {
+        VM.ResourceSpec resources = new VM.ResourceSpec();
+        resources.setCpuCores(4);
+        resources.setMemoryGB(16);
+        resources.setStorageGB(100);
+        resources.setNetworkBandwidthMbps(1000);
+
+        VM vm = new VM();
+        vm.setName(name);
+        vm.setImageId("ami-0abcdef1234567890");
+        vm.setInstanceType("m5.xlarge");
+        vm.setResources(resources);
+        vm.setUserId("user-" + (name.hashCode() & 0xff));
+        vm.setRegion("us-east-1");
+        vm.setAvailabilityZone("us-east-1a");
+        return vm;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (executor instanceof DisposableBean disposable) {
+            disposable.destroy();
+        } else if (executor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
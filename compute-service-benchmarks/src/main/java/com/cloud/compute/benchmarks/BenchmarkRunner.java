@@ -0,0 +1,38 @@
+package com.cloud.compute.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the shaded benchmarks jar. Accepts the usual JMH command line and
+ * always writes machine-readable results to
+ * {@code target/jmh-results-<version>.json} (override with {@code -rff}) so runs
+ * from different releases can be diffed.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        Path results = Path.of("target", "jmh-results-" + (version != null ? version : "dev") + ".json");
+        Files.createDirectories(results.getParent());
+
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(results.toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.exception.GlobalExceptionHandler;
+import com.cloud.compute.exception.IllegalStateTransitionException;
+import com.cloud.compute.exception.VMException;
+import com.cloud.compute.model.VM;
+
+/**
+ * Throughput of expected failures end to end: the service returning failed results for
+ * an illegal transition, a missing VM and invalid resources, and the handler rendering
+ * problem details. {@code newFaultException} is the stack-capturing baseline the expected
+ * failures no longer pay. Run with logs going to target/benchmarks.log.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorPathBenchmark {
+    private BenchmarkFixture fixture;
+    private GlobalExceptionHandler handler;
+    private String runningId;
+    private VM.ResourceSpec invalidResources;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = BenchmarkFixture.create(ExecutorProperties.Mode.PLATFORM, 0);
+        handler = new GlobalExceptionHandler();
+        runningId = fixture.seed("error-path", VM.VMState.RUNNING).getId();
+        invalidResources = new VM.ResourceSpec();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Object startRunningVM() {
+        return fixture.service().startVM(runningId).join();
+    }
+
+    @Benchmark
+    public Object startMissingVM() {
+        return fixture.service().startVM("missing").join();
+    }
+
+    @Benchmark
+    public Object updateInvalidResources() {
+        return fixture.service().updateResources(runningId, invalidResources).join();
+    }
+
+    @Benchmark
+    public Object handleIllegalState() {
+        return handler.handleVMException(
+                new IllegalStateTransitionException(runningId, VM.VMState.RUNNING, "VM is not in STOPPED state"));
+    }
+
+    @Benchmark
+    public Object handleGlobalException() {
+        return handler.handleGlobalException(new IllegalStateException("boom"));
+    }
+
+    @Benchmark
+    public Object newFaultException() {
+        return new VMException("VM is not in STOPPED state");
+    }
+}
@@ -0,0 +1,87 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.model.VM;
+
+/**
+ * Lifecycle throughput with {@code clients} concurrent callers against a repository that
+ * blocks for {@code latencyMicros} per call, for each executor mode. Each invocation is
+ * one wave of start+stop per client; the {@code lifecycleOps} counter reports completed
+ * service calls per second.
+ *
+ * <p>Only PLATFORM runs by default: the build targets Java 17, where VIRTUAL would
+ * silently measure the platform fallback. On a JDK 21 runtime add
+ * {@code -p mode=VIRTUAL,PLATFORM} to compare both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorThroughputBenchmark {
+    @Param({"10", "100", "1000"})
+    public int clients;
+
+    @Param({"PLATFORM"})
+    public ExecutorProperties.Mode mode;
+
+    @Param({"1000"})
+    public long latencyMicros;
+
+    private BenchmarkFixture fixture;
+    private String[] vmIds;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lifecycleOps;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (mode == ExecutorProperties.Mode.VIRTUAL && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("VIRTUAL needs a JDK 21 runtime; this run would measure PLATFORM");
+        }
+        fixture = BenchmarkFixture.create(mode, latencyMicros);
+        vmIds = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            vmIds[i] = fixture.seed("client-" + i, VM.VMState.STOPPED).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void startStopWave(Counters counters) {
+        CompletableFuture<?>[] wave = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            String vmId = vmIds[i];
+            wave[i] = fixture.service().startVM(vmId)
+                    .thenCompose(vm -> fixture.service().stopVM(vmId));
+        }
+        CompletableFuture.allOf(wave).join();
+        counters.lifecycleOps += 2L * clients;
+    }
+}
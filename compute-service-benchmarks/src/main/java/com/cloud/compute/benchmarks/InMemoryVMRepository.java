@@ -0,0 +1,28 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.cloud.compute.config.EmbeddedStoreProperties;
+import com.cloud.compute.repository.embedded.EmbeddedVMRepository;
+
+/**
+ * Memory-only {@link EmbeddedVMRepository} so the benchmarks need no MongoDB. Every call
+ * optionally parks for {@code latencyMicros} to model the blocking round trip of a real
+ * Mongo call.
+ */
+public class InMemoryVMRepository extends EmbeddedVMRepository {
+    private final long latencyNanos;
+
+    public InMemoryVMRepository(long latencyMicros) {
+        super(new EmbeddedStoreProperties());
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+    }
+
+    @Override
+    protected void beforeOperation() {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+}
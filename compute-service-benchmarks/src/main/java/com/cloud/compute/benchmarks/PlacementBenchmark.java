@@ -0,0 +1,87 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.config.PlacementProperties;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.service.impl.FleetStatsTracker;
+import com.cloud.compute.service.impl.PlacementEngine;
+
+/**
+ * One placement decision plus release against a fleet of {@code fleetSize} VMs spread
+ * over 12 zones and 8 instance types.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlacementBenchmark {
+    private static final List<String> REGIONS = List.of("us-east-1", "us-west-2", "eu-west-1", "ap-south-1");
+    private static final List<String> INSTANCE_TYPES = List.of(
+            "t3.medium", "t3.large", "m5.large", "m5.xlarge", "c5.xlarge", "c5.2xlarge", "r5.large", "r5.xlarge");
+    private static final VM.VMState[] STATES = VM.VMState.values();
+
+    @Param({"100000"})
+    public int fleetSize;
+
+    @Param({"SPREAD", "BIN_PACK"})
+    public PlacementProperties.Policy policy;
+
+    private PlacementEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PlacementProperties properties = new PlacementProperties();
+        properties.setPolicy(policy);
+        for (String region : REGIONS) {
+            for (char az = 'a'; az <= 'c'; az++) {
+                PlacementProperties.Zone zone = new PlacementProperties.Zone();
+                zone.setRegion(region);
+                zone.setAvailabilityZone(region + az);
+                zone.setCpuCores(1_000_000);
+                zone.setMemoryGB(4_000_000);
+                zone.setStorageGB(100_000_000);
+                zone.setNetworkBandwidthMbps(1_000_000_000);
+                properties.getZones().add(zone);
+            }
+        }
+
+        FleetStatsTracker fleetStats = new FleetStatsTracker(new InMemoryVMRepository(0));
+        for (int i = 0; i < fleetSize; i++) {
+            PlacementProperties.Zone zone = properties.getZones().get(i % properties.getZones().size());
+            VM vm = BenchmarkFixture.newVM("vm-" + i);
+            vm.setRegion(zone.getRegion());
+            vm.setAvailabilityZone(zone.getAvailabilityZone());
+            vm.setInstanceType(INSTANCE_TYPES.get(i % INSTANCE_TYPES.size()));
+            vm.setState(STATES[i % STATES.length]);
+            fleetStats.add(vm);
+        }
+        engine = new PlacementEngine(properties, fleetStats);
+    }
+
+    @Benchmark
+    public Object reserveAndRelease() {
+        VM vm = BenchmarkFixture.newVM("placed");
+        vm.setRegion(null);
+        vm.setAvailabilityZone(null);
+        PlacementEngine.Reservation reservation = engine.reserve(vm);
+        reservation.release();
+        return vm.getAvailabilityZone();
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMSummary;
+
+/**
+ * One page of tag and custom metadata search against {@code fleetSize} VMs in the
+ * embedded repository. Each VM carries an env tag (4 values), a team tag (64 values) and
+ * a cost-center metadata entry (256 values), so the predicates range from broad to narrow.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final List<String> ENVIRONMENTS = List.of("env:prod", "env:staging", "env:dev", "env:test");
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000000"})
+    public int fleetSize;
+
+    private InMemoryVMRepository repository;
+    private VMFilter byTag;
+    private VMFilter byAllTags;
+    private VMFilter byAnyTags;
+    private VMFilter byTagAndMetadata;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryVMRepository(0);
+        List<VM> batch = new ArrayList<>();
+        for (int i = 0; i < fleetSize; i++) {
+            VM vm = BenchmarkFixture.newVM("vm-" + i);
+            vm.setState(VM.VMState.RUNNING);
+            vm.setTags(List.of(ENVIRONMENTS.get(i % ENVIRONMENTS.size()), "team:" + (i % 64)));
+            VM.VMMetadata metadata = new VM.VMMetadata();
+            metadata.setCustomMetadata(Map.of("costCenter", "cc-" + (i % 256)));
+            vm.setMetadata(metadata);
+            batch.add(vm);
+            if (batch.size() == 10_000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+
+        byTag = VMFilter.byTag("env:prod");
+        byAllTags = new VMFilter();
+        byAllTags.setTags(Set.of("env:prod", "team:12"));
+        byAnyTags = new VMFilter();
+        byAnyTags.setAnyTags(Set.of("team:3", "team:7", "team:11"));
+        byTagAndMetadata = VMFilter.byTag("team:5");
+        byTagAndMetadata.setMetadata(Map.of("costCenter", "cc-69"));
+    }
+
+    @Benchmark
+    public Object searchByTag() {
+        return repository.findPage(byTag, null, PAGE_SIZE, VMSummary.class);
+    }
+
+    @Benchmark
+    public Object searchByAllTags() {
+        return repository.findPage(byAllTags, null, PAGE_SIZE, VMSummary.class);
+    }
+
+    @Benchmark
+    public Object searchByAnyTags() {
+        return repository.findPage(byAnyTags, null, PAGE_SIZE, VMSummary.class);
+    }
+
+    @Benchmark
+    public Object searchByTagAndMetadata() {
+        return repository.findPage(byTagAndMetadata, null, PAGE_SIZE, VMSummary.class);
+    }
+}
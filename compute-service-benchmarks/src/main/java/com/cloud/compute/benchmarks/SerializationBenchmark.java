@@ -0,0 +1,154 @@
+package com.cloud.compute.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.cloud.compute.model.VM;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Jackson cost of VM responses in each negotiable wire format, with mappers configured
+ * like the Spring Boot ones. Encoded and gzipped bytes per VM are reported by
+ * {@link #wireSize} as aux counters, so they land in the results file next to the timings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"1", "100", "1000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private VM vm;
+    private List<VM> vms;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = builder(format)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        vms = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            vms.add(fullVM("vm-" + i));
+        }
+        vm = vms.get(0);
+        encoded = objectMapper.writeValueAsBytes(vms);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class WireSize {
+        public double bytesPerVM;
+        public double gzippedBytesPerVM;
+    }
+
+    private static Jackson2ObjectMapperBuilder builder(String format) {
+        return switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+
+    static VM fullVM(String name) {
+        VM vm = BenchmarkFixture.newVM(name);
+        vm.setId(UUID.randomUUID().toString());
+        vm.setState(VM.VMState.RUNNING);
+        vm.setCreatedAt(LocalDateTime.now());
+        vm.setUpdatedAt(LocalDateTime.now());
+        vm.setTags(List.of("env=prod", "team=compute", "tier=web"));
+        vm.setSecurityGroups(List.of("sg-01234567", "sg-89abcdef"));
+
+        VM.NetworkConfig network = new VM.NetworkConfig();
+        network.setVpcId("vpc-0a1b2c3d");
+        network.setSubnetId("subnet-0a1b2c3d");
+        network.setPrivateIp("10.0.12.34");
+        network.setPublicIp("54.12.34.56");
+        network.setSecurityGroupIds(List.of("sg-01234567"));
+        vm.setNetworkConfig(network);
+
+        VM.VMMetadata metadata = new VM.VMMetadata();
+        metadata.setHostname(name + ".internal");
+        metadata.setSshKey("ssh-ed25519 AAAAC3NzaC1lZDI1NTE5AAAAIG0bench");
+        metadata.setUserData("#cloud-config\n" + "packages:\n  - nginx\n".repeat(200));
+        metadata.setCustomMetadata(Map.of("owner", "team-x", "costCenter", "cc-42"));
+        vm.setMetadata(metadata);
+        return vm;
+    }
+
+    @Benchmark
+    public byte[] serializeVM() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(vm);
+    }
+
+    @Benchmark
+    public byte[] serializeVMList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(vms);
+    }
+
+    /** What a response over the compression threshold costs: encoding plus gzip. */
+    @Benchmark
+    public byte[] serializeVMListGzipped() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(vms));
+    }
+
+    @Benchmark
+    public VM[] deserializeVMList() throws IOException {
+        return objectMapper.readValue(encoded, VM[].class);
+    }
+
+    /**
+     * Encoded and gzipped bytes per VM of the {@code size}-VM list. Its time is
+     * meaningless; the counters are the result. JMH sums event counters over threads and
+     * measurement iterations, so each share is divided by their number.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void wireSize(WireSize wireSize, BenchmarkParams params) throws IOException {
+        double shares = (double) size * params.getMeasurement().getCount() * params.getThreads();
+        wireSize.bytesPerVM = encoded.length / shares;
+        wireSize.gzippedBytesPerVM = gzip(encoded).length / shares;
+    }
+}
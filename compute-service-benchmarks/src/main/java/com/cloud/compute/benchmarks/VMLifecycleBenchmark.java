@@ -0,0 +1,87 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMSummary;
+
+/** Single-caller cost of each VMServiceImpl lifecycle path with a zero-latency repository. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VMLifecycleBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Service {
+        BenchmarkFixture fixture;
+        final AtomicLong names = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fixture = BenchmarkFixture.create(ExecutorProperties.Mode.PLATFORM, 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            fixture.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadVM {
+        String stoppedId;
+        String runningId;
+
+        @Setup(Level.Trial)
+        public void setUp(Service service) {
+            String prefix = "bench-" + Thread.currentThread().getId();
+            stoppedId = service.fixture.seed(prefix + "-stopped", VM.VMState.STOPPED).getId();
+            runningId = service.fixture.seed(prefix + "-running", VM.VMState.RUNNING).getId();
+        }
+    }
+
+    @Benchmark
+    public VM createVM(Service service) {
+        VM vm = BenchmarkFixture.newVM("create-" + service.names.incrementAndGet());
+        return service.fixture.service().createVM(vm).join().orElseThrow();
+    }
+
+    @Benchmark
+    public VM startStopCycle(Service service, ThreadVM vm) {
+        service.fixture.service().startVM(vm.stoppedId).join();
+        return service.fixture.service().stopVM(vm.stoppedId).join().orElseThrow();
+    }
+
+    @Benchmark
+    public Object getVM(Service service, ThreadVM vm) {
+        return service.fixture.service().getVM(vm.runningId);
+    }
+
+    @Benchmark
+    public boolean isVMAvailable(Service service, ThreadVM vm) {
+        return service.fixture.service().isVMAvailable(vm.runningId);
+    }
+
+    @Benchmark
+    public Object getVMsByUserIdSummaryPage(Service service, ThreadVM vm) {
+        return service.fixture.service().getVMs(VMFilter.byUserId("user-1"), null, 100, VMSummary.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.cloud.compute.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.exception.VMException;
+import com.cloud.compute.model.VM;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+    private BenchmarkFixture fixture;
+    private VM.ResourceSpec valid;
+    private VM.ResourceSpec invalid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = BenchmarkFixture.create(ExecutorProperties.Mode.PLATFORM, 0);
+        valid = BenchmarkFixture.newVM("valid").getResources();
+        invalid = new VM.ResourceSpec();
+        invalid.setCpuCores(4);
+        invalid.setMemoryGB(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void validResources() {
+        fixture.service().validateVMResources(valid);
+    }
+
+    @Benchmark
+    public Object invalidResources() {
+        try {
+            fixture.service().validateVMResources(invalid);
+            return null;
+        } catch (VMException e) {
+            return e;
+        }
+    }
+}
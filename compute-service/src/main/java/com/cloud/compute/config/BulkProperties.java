@@ -0,0 +1,19 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.bulk")
+public class BulkProperties {
+    /** VMs per Mongo read/update round trip. */
+    private int batchSize = 500;
+    /** Chunks of the same bulk request processed concurrently. */
+    private int parallelism = 4;
+    /** Upper bound on VMs a single bulk request may target. */
+    private int maxTargets = 10000;
+    private Duration streamTimeout = Duration.ofMinutes(5);
+}
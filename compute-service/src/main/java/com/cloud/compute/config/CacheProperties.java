@@ -0,0 +1,16 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.cache")
+public class CacheProperties {
+    private boolean enabled = true;
+    private long maximumSize = 100_000;
+    /** Safety net for writes made by other instances; our own writes refresh the cache directly. */
+    private Duration ttl = Duration.ofSeconds(30);
+}
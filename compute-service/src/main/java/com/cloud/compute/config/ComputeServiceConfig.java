@@ -2,34 +2,71 @@ package com.cloud.compute.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
-import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 @Configuration
-@EnableMongoRepositories(basePackages = "com.cloud.compute.repository")
 @EnableAsync
+@EnableScheduling
+@EnableConfigurationProperties({ExecutorProperties.class, BulkProperties.class, CacheProperties.class,
+        QueryProperties.class, IndexProperties.class, IdempotencyProperties.class,
+        EmbeddedStoreProperties.class, PlacementProperties.class,
+        ProvisioningProperties.class, WriteBehindProperties.class, TenantProperties.class,
+        ConcurrencyLimitProperties.class, EventProperties.class, MongoClientProperties.class})
 public class ComputeServiceConfig {
 
-    @Bean
-    public MongoTemplate mongoTemplate() {
-        return new MongoTemplate(
-            new SimpleMongoClientDatabaseFactory("mongodb://localhost:27017/cloud_compute")
-        );
-    }
-
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(ExecutorProperties properties, MeterRegistry meterRegistry) {
+        ExecutorMetrics metrics = new ExecutorMetrics(meterRegistry, "taskExecutor");
+        if (properties.getMode() == ExecutorProperties.Mode.VIRTUAL) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ComputeService-");
+            try {
+                executor.setVirtualThreads(true);
+                executor.setTaskDecorator(metrics);
+                executor.setTaskTerminationTimeout(properties.getShutdownTimeout().toMillis());
+                log.info("Lifecycle tasks run on virtual threads");
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                log.warn("Virtual threads not supported on this JVM, falling back to platform pool");
+            }
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
         executor.setThreadNamePrefix("ComputeService-");
+        executor.setTaskDecorator(metrics);
+        executor.setRejectedExecutionHandler(metrics);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationMillis(properties.getShutdownTimeout().toMillis());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Drains server-sent event streams. Sends block on slow clients, so they get their own
+     * bounded platform pool rather than holding lifecycle threads.
+     */
+    @Bean(name = "eventStreamExecutor")
+    public Executor eventStreamExecutor(EventProperties properties, MeterRegistry meterRegistry) {
+        ExecutorMetrics metrics = new ExecutorMetrics(meterRegistry, "eventStreamExecutor");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getStreamThreads());
+        executor.setMaxPoolSize(properties.getStreamThreads());
+        executor.setQueueCapacity(properties.getStreamQueueCapacity());
+        executor.setThreadNamePrefix("EventStream-");
+        executor.setTaskDecorator(metrics);
+        executor.setRejectedExecutionHandler(metrics);
         executor.initialize();
         return executor;
     }
-} 
\ No newline at end of file
+}
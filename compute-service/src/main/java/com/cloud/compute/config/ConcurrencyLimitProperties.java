@@ -0,0 +1,30 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.concurrency")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private int initialLimit = 100;
+    private int minLimit = 10;
+    private int maxLimit = 1000;
+    /** How far recent Mongo latency may exceed its long-run average before the limit shrinks. */
+    private double rttTolerance = 1.5;
+    /** Samples averaged into the long-run Mongo latency. */
+    private int longWindow = 600;
+    /** Weight of each new limit estimate; lower reacts more slowly but jitters less. */
+    private double smoothing = 0.2;
+    /** Factor applied to the limit when a Mongo call fails outright. */
+    private double backoffRatio = 0.9;
+    /** Fraction of the limit NORMAL work may use; the rest is kept for CRITICAL work. */
+    private double normalShare = 0.9;
+    /** Fraction of the limit SHEDDABLE work may use. */
+    private double sheddableShare = 0.75;
+    /** Retry-After sent with 503 when a request is shed. */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
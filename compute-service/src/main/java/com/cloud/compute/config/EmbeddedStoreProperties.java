@@ -0,0 +1,18 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.embedded")
+public class EmbeddedStoreProperties {
+    /** Directory for the journal and snapshot files; unset keeps the store purely in memory. */
+    private String dataDir;
+    /** How often the journal is folded into a new snapshot. */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+    /** fsync after every journal append instead of leaving flushing to the OS. */
+    private boolean syncOnWrite = false;
+}
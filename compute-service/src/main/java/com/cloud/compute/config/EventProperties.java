@@ -0,0 +1,26 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.events")
+public class EventProperties {
+    private boolean enabled = true;
+    /** Most recent transitions kept for clients resuming with Last-Event-ID. */
+    private int replayCapacity = 10000;
+    /**
+     * Undelivered transitions held per subscriber, counted in distinct VMs: a newer event
+     * for a VM replaces an undelivered one. A subscriber further behind is dropped.
+     */
+    private int subscriberBuffer = 1000;
+    /** How long one event stream stays open; clients reconnect with Last-Event-ID. */
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    /** Threads sending to event stream clients; a slow client holds one while it catches up. */
+    private int streamThreads = 16;
+    /** Streams waiting for a send thread; each stream queues at most one drain. */
+    private int streamQueueCapacity = 10000;
+}
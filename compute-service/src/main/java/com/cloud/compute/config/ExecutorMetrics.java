@@ -0,0 +1,84 @@
+package com.cloud.compute.config;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.TaskDecorator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Task decorator that reports queued and active task counts and how long each task
+ * waited between submission and starting on a thread. Works the same for the virtual
+ * and platform executors, since both apply a {@link TaskDecorator}.
+ */
+public class ExecutorMetrics implements TaskDecorator, RejectedExecutionHandler {
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public ExecutorMetrics(MeterRegistry meterRegistry, String executor) {
+        Gauge.builder("compute.executor.queued", queued, AtomicInteger::get)
+                .description("Tasks submitted but not yet running")
+                .tag("executor", executor)
+                .register(meterRegistry);
+        Gauge.builder("compute.executor.active", active, AtomicInteger::get)
+                .description("Tasks currently running")
+                .tag("executor", executor)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("compute.executor.wait")
+                .description("Time from task submission until it starts running")
+                .tag("executor", executor)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("compute.executor.rejected")
+                .description("Tasks rejected because the executor queue was full")
+                .tag("executor", executor)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        queued.incrementAndGet();
+        return new InstrumentedTask(runnable, System.nanoTime());
+    }
+
+    /** Platform pool only: a rejected task never runs, so it leaves the queued count here. */
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        if (task instanceof InstrumentedTask) {
+            queued.decrementAndGet();
+        }
+        rejected.increment();
+        throw new RejectedExecutionException("Task executor queue is full");
+    }
+
+    private final class InstrumentedTask implements Runnable {
+        private final Runnable delegate;
+        private final long submittedNanos;
+
+        private InstrumentedTask(Runnable delegate, long submittedNanos) {
+            this.delegate = delegate;
+            this.submittedNanos = submittedNanos;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+            active.incrementAndGet();
+            try {
+                delegate.run();
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.executor")
+public class ExecutorProperties {
+    /**
+     * PLATFORM uses a bounded pool. VIRTUAL runs every lifecycle task on its own virtual
+     * thread; it needs a JDK 21 runtime and falls back to PLATFORM on the Java 17 target.
+     */
+    private Mode mode = Mode.PLATFORM;
+    private int corePoolSize = 16;
+    private int maxPoolSize = 64;
+    private int queueCapacity = 1000;
+    /** Upper bound on Mongo calls in flight from lifecycle tasks, regardless of mode. */
+    private int maxConcurrentMongoCalls = 200;
+    /** How long a task waits for a Mongo permit before it is rejected. */
+    private Duration mongoPermitTimeout = Duration.ofSeconds(2);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    public enum Mode {
+        VIRTUAL,
+        PLATFORM
+    }
+}
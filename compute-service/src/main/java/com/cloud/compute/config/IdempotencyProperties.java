@@ -0,0 +1,15 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.idempotency")
+public class IdempotencyProperties {
+    private long maximumSize = 100_000;
+    /** How long a completed create stays replayable for the same Idempotency-Key. */
+    private Duration ttl = Duration.ofHours(24);
+}
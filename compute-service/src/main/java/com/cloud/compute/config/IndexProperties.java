@@ -0,0 +1,17 @@
+package com.cloud.compute.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.indexes")
+public class IndexProperties {
+    /** Create the indexes declared on VM at startup. */
+    private boolean ensureOnStartup = true;
+    /**
+     * Explain every repository query shape with its sort at startup and fail if any scans
+     * the collection or _id_ unbounded, or sorts in memory.
+     */
+    private boolean verifyQueryPlans = true;
+}
@@ -0,0 +1,55 @@
+package com.cloud.compute.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counts calls turned away by Resilience4j circuit breakers; per-tenant throttling has
+ * its own counters. Instances are created lazily on first use, so the counters are bound
+ * as each one is added to its registry. Tags are the kind and the configured instance
+ * name, both bounded by configuration.
+ */
+@Configuration
+public class MetricsConfig {
+    static final String REJECTIONS = "compute.resilience.rejections";
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerRejectionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> event) {
+                bind(event.getAddedEntry());
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> event) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> event) {
+                bind(event.getNewEntry());
+            }
+
+            private void bind(CircuitBreaker circuitBreaker) {
+                Counter rejections = rejectionCounter(meterRegistry, "circuit_breaker", circuitBreaker.getName());
+                circuitBreaker.getEventPublisher().onCallNotPermitted(e -> rejections.increment());
+            }
+        };
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String kind, String name) {
+        return Counter.builder(REJECTIONS)
+                .description("Calls rejected by an open circuit breaker")
+                .tag("kind", kind)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+}
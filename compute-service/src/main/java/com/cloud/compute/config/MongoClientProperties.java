@@ -0,0 +1,35 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Pool, timeout and read preference settings applied on top of {@code spring.data.mongodb},
+ * which still supplies the connection string, hosts and database.
+ */
+@Data
+@ConfigurationProperties(prefix = "compute.mongo")
+public class MongoClientProperties {
+    private int minPoolSize = 10;
+    /** Sized to compute.executor.max-concurrent-mongo-calls, so permit holders rarely wait for a connection. */
+    private int maxPoolSize = 200;
+    /** Connections being established at once; bounds the connection storm after a failover. */
+    private int maxConnecting = 2;
+    /** How long an operation waits in the pool's queue for a connection before failing. */
+    private Duration maxWaitTime = Duration.ofSeconds(2);
+    private Duration maxConnectionIdleTime = Duration.ofMinutes(5);
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    /** Per-read socket timeout; zero waits forever. */
+    private Duration socketTimeout = Duration.ofSeconds(10);
+    private Duration serverSelectionTimeout = Duration.ofSeconds(5);
+    /**
+     * Read preference for paged and streamed list queries. Lifecycle reads, conditional
+     * writes and the change feed always use the primary.
+     */
+    private String listReadPreference = "secondaryPreferred";
+    /** How far behind the primary a secondary may be to serve list queries; at least 90s. */
+    private Duration listMaxStaleness = Duration.ofSeconds(90);
+}
@@ -0,0 +1,79 @@
+package com.cloud.compute.config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.MongoClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/** MongoDB-backed VMRepository; replaced by the embedded engine under the "embedded" profile. */
+@Configuration
+@Profile("!embedded")
+@EnableMongoRepositories(basePackages = "com.cloud.compute.repository")
+public class MongoConfig {
+
+    /**
+     * Pool and timeout settings for every client built from Boot's settings, the reactive
+     * one included. Connection details still come from {@code spring.data.mongodb}.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoPoolCustomizer(MongoClientProperties properties,
+                                                                    MeterRegistry meterRegistry) {
+        MongoPoolMetrics poolMetrics = new MongoPoolMetrics(meterRegistry);
+        return builder -> builder
+                .applyToConnectionPoolSettings(pool -> pool
+                        .minSize(properties.getMinPoolSize())
+                        .maxSize(properties.getMaxPoolSize())
+                        .maxConnecting(properties.getMaxConnecting())
+                        .maxWaitTime(properties.getMaxWaitTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(properties.getMaxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                        .addConnectionPoolListener(poolMetrics))
+                .applyToSocketSettings(socket -> socket
+                        .connectTimeout(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .readTimeout(properties.getSocketTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(cluster -> cluster
+                        .serverSelectionTimeout(properties.getServerSelectionTimeout().toMillis(),
+                                TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Writes and single-VM reads: primary only. Uses the auto-configured client so its
+     * customizers apply, including the Micrometer command listener that times every
+     * command by collection and command name.
+     */
+    @Bean
+    @Primary
+    public MongoTemplate mongoTemplate(MongoClient mongoClient, MongoProperties properties) {
+        return new MongoTemplate(mongoClient, properties.getMongoClientDatabase());
+    }
+
+    /** List queries, which tolerate bounded staleness and may be served by secondaries. */
+    @Bean
+    public MongoTemplate listMongoTemplate(MongoTemplate mongoTemplate, MongoClientProperties properties) {
+        // Shares the database factory and mapping with the primary template.
+        MongoTemplate template =
+                new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        template.setReadPreference(listReadPreference(properties));
+        return template;
+    }
+
+    static ReadPreference listReadPreference(MongoClientProperties properties) {
+        if ("primary".equalsIgnoreCase(properties.getListReadPreference())) {
+            // The primary takes no staleness bound.
+            return ReadPreference.primary();
+        }
+        return ReadPreference.valueOf(properties.getListReadPreference(), List.of(),
+                properties.getListMaxStaleness().toSeconds(), TimeUnit.SECONDS);
+    }
+}
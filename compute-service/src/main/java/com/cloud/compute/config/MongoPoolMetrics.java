@@ -0,0 +1,45 @@
+package com.cloud.compute.config;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times how long operations wait to check a connection out of the Mongo pool. Pool size,
+ * checked-out and wait-queue gauges come from Boot's {@code mongodb.driver.pool} meters;
+ * this adds the wait itself, which is what grows first when the pool is undersized.
+ * Shared by the blocking and reactive clients.
+ */
+public class MongoPoolMetrics implements ConnectionPoolListener {
+    private final Timer checkoutWait;
+    private final Counter checkoutTimeouts;
+
+    public MongoPoolMetrics(MeterRegistry meterRegistry) {
+        this.checkoutWait = Timer.builder("compute.mongo.pool.checkout")
+                .description("Time waited to check a connection out of the pool")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.checkoutTimeouts = Counter.builder("compute.mongo.pool.checkout.timeouts")
+                .description("Checkouts that gave up after max-wait-time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        checkoutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        checkoutWait.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        if (event.getReason() == ConnectionCheckOutFailedEvent.Reason.TIMEOUT) {
+            checkoutTimeouts.increment();
+        }
+    }
+}
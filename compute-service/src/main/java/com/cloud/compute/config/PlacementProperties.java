@@ -0,0 +1,35 @@
+package com.cloud.compute.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.placement")
+public class PlacementProperties {
+    /**
+     * How a zone is chosen for creates that omit availabilityZone. BIN_PACK fills the
+     * fullest zone that still fits; SPREAD picks the emptiest.
+     */
+    private Policy policy = Policy.SPREAD;
+    /** Schedulable zones and their capacity. Empty disables placement and capacity checks. */
+    private List<Zone> zones = new ArrayList<>();
+
+    public enum Policy {
+        BIN_PACK,
+        SPREAD
+    }
+
+    @Data
+    public static class Zone {
+        private String region;
+        private String availabilityZone;
+        private long cpuCores;
+        private long memoryGB;
+        private long storageGB;
+        private long networkBandwidthMbps;
+    }
+}
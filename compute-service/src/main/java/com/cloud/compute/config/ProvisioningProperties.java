@@ -0,0 +1,36 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.provisioning")
+public class ProvisioningProperties {
+    /**
+     * When false, created VMs stay PENDING and no workers run. Enabling it requires a
+     * hypervisor driver; startup fails otherwise.
+     */
+    private boolean enabled = false;
+    /** VMs admitted but not yet committed; creates beyond this get 429. */
+    private int queueCapacity = 10000;
+    /** Largest batch handed to the hypervisor driver and committed in one update. */
+    private int batchSize = 100;
+    private int workers = 4;
+    /** Retry-After sent with 429 when the queue is full. */
+    private Duration retryAfter = Duration.ofSeconds(5);
+    /** How often PENDING VMs not already queued (restarts, other instances) are picked up. */
+    private Duration sweepInterval = Duration.ofMinutes(1);
+    /**
+     * How long a claimed PENDING VM is reserved for the instance that claimed it; after
+     * that another instance's sweep may take it over. Must cover queueing plus a driver call.
+     */
+    private Duration leaseDuration = Duration.ofMinutes(5);
+    /** Hypervisor driver bean to use; "fake" is the in-process driver, enabled by the local profile. */
+    private String driver;
+    private Duration fakeLatency = Duration.ofMillis(20);
+    /** Fraction of VMs the fake driver fails, moving them to ERROR. */
+    private double fakeFailureRate = 0;
+}
@@ -0,0 +1,24 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.query")
+public class QueryProperties {
+    private int defaultPageSize = 100;
+    private int maxPageSize = 1000;
+    /** Documents fetched per Mongo cursor batch when streaming NDJSON. */
+    private int streamBatchSize = 500;
+    /** Upper bound on tag, anyTag and metadata predicates in one search. */
+    private int maxSearchTerms = 16;
+    /**
+     * Clock skew allowed between instances. The change feed reads this far behind the
+     * longest a write can take to commit, which is derived from the Mongo permit, pool
+     * and socket timeouts.
+     */
+    private Duration changesSettleTime = Duration.ofSeconds(2);
+}
@@ -0,0 +1,49 @@
+package com.cloud.compute.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoProperties;
+import org.springframework.boot.autoconfigure.mongo.ReactiveMongoClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+
+/**
+ * Reactive Mongo access for the "reactive" profile. Boot's reactive Mongo
+ * auto-configuration is excluded so the servlet mode does not open a second client;
+ * this client is built from the same settings and customizers as the blocking one,
+ * so connection details, pool settings and metrics are shared.
+ */
+@Configuration
+@Profile("reactive")
+@EnableReactiveMongoRepositories(basePackages = "com.cloud.compute.repository.reactive")
+public class ReactiveMongoConfig {
+
+    @Bean(destroyMethod = "close")
+    public MongoClient reactiveMongoClient(MongoClientSettings settings,
+                                           ObjectProvider<MongoClientSettingsBuilderCustomizer> customizers) {
+        return new ReactiveMongoClientFactory(customizers.orderedStream().toList()).createMongoClient(settings);
+    }
+
+    @Bean
+    @Primary
+    public ReactiveMongoTemplate reactiveMongoTemplate(MongoClient reactiveMongoClient, MongoProperties properties) {
+        return new ReactiveMongoTemplate(reactiveMongoClient, properties.getMongoClientDatabase());
+    }
+
+    /** Reactive twin of {@link MongoConfig#listMongoTemplate}. */
+    @Bean
+    public ReactiveMongoTemplate listReactiveMongoTemplate(ReactiveMongoTemplate reactiveMongoTemplate,
+                                                           MongoClientProperties properties) {
+        ReactiveMongoTemplate template = new ReactiveMongoTemplate(
+                reactiveMongoTemplate.getMongoDatabaseFactory(), reactiveMongoTemplate.getConverter());
+        template.setReadPreference(MongoConfig.listReadPreference(properties));
+        return template;
+    }
+}
@@ -0,0 +1,56 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.tenants")
+public class TenantProperties {
+    private boolean enabled = true;
+    /** Sustained lifecycle mutations per second across all tenants, attributed or not. */
+    private double globalRate = 2000;
+    /** Mutations the whole service accepts at once after being idle. */
+    private int globalBurst = 4000;
+    /** Sustained lifecycle mutations per second per tenant. */
+    private double defaultRate = 20;
+    /** Requests a tenant may make at once after being idle. */
+    private int defaultBurst = 40;
+    /** Share of executor dispatch a tenant gets while others are waiting too. */
+    private int defaultWeight = 1;
+    /** Per-userId rate, burst and weight; unset fields fall back to the defaults. */
+    private Map<String, Limit> overrides = new HashMap<>();
+    /** Buckets unused for this long are dropped; a returning tenant starts with a full bucket anyway. */
+    private Duration idleEviction = Duration.ofMinutes(10);
+    private int stripes = 64;
+    /** Lifecycle tasks one tenant may have waiting for the executor before further ones get 429. */
+    private int maxQueuedPerTenant = 100;
+    /** Lifecycle tasks running at once across all tenants; the rest wait in their tenant's queue. */
+    private int maxConcurrentTasks = 200;
+
+    @Data
+    public static class Limit {
+        private Double rate;
+        private Integer burst;
+        private Integer weight;
+    }
+
+    public double rateFor(String userId) {
+        Limit limit = overrides.get(userId);
+        return limit != null && limit.getRate() != null ? limit.getRate() : defaultRate;
+    }
+
+    public int burstFor(String userId) {
+        Limit limit = overrides.get(userId);
+        return limit != null && limit.getBurst() != null ? limit.getBurst() : defaultBurst;
+    }
+
+    public int weightFor(String userId) {
+        Limit limit = overrides.get(userId);
+        return limit != null && limit.getWeight() != null ? limit.getWeight() : defaultWeight;
+    }
+}
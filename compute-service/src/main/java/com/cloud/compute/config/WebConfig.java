@@ -0,0 +1,22 @@
+package com.cloud.compute.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.cloud.compute.controller.TenantInterceptor;
+
+import lombok.RequiredArgsConstructor;
+
+@Configuration
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final TenantInterceptor tenantInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tenantInterceptor).addPathPatterns("/api/**");
+    }
+}
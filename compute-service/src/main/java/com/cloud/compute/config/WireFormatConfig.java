@@ -0,0 +1,61 @@
+package com.cloud.compute.config;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * {@code application/cbor} and {@code application/x-jackson-smile} alongside JSON, for
+ * request and response bodies. The mappers come from Boot's builder, so they follow the
+ * same {@code spring.jackson} settings as JSON. JSON stays the default: these converters
+ * sit after it and are only chosen when the Accept or Content-Type header asks for them.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    @Profile("!reactive")
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper(builder));
+    }
+
+    @Bean
+    @Profile("!reactive")
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    @Bean
+    @Profile("reactive")
+    public CodecCustomizer binaryCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cbor = cborMapper(builder);
+        ObjectMapper smile = smileMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile));
+            configurer.customCodecs().register(new Jackson2CborEncoder(cbor));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor));
+        };
+    }
+
+    // Boot's builder is prototype-scoped, so each injection point gets its own copy to configure.
+    private static ObjectMapper cborMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new CBORFactory()).build();
+    }
+
+    private static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.cloud.compute.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "compute.write-behind")
+public class WriteBehindProperties {
+    /**
+     * Acknowledge state transitions once journaled locally and write them to Mongo in
+     * batches. Reads by id on this instance stay current; list queries and other
+     * instances lag by up to {@code flushInterval}.
+     */
+    private boolean enabled = false;
+    /** Directory for the local journal; if it is lost, acknowledged but unflushed transitions are too. */
+    private String journalDir = "data/write-behind";
+    /** Longest a transition waits in memory before being written to Mongo. */
+    private Duration flushInterval = Duration.ofMillis(100);
+    /** Pending VMs that trigger an early flush; also the size of each bulk write. */
+    private int flushSize = 1000;
+}
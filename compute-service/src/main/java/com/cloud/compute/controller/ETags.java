@@ -0,0 +1,51 @@
+package com.cloud.compute.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.model.VMView;
+
+/**
+ * Strong entity tags derived from VM versions rather than from serialized bodies, so a
+ * matching {@code If-None-Match} is answered with 304 before anything is rendered.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(VM vm) {
+        return "\"" + Long.toHexString(vm.getVersion()) + "\"";
+    }
+
+    /** Tag of a listing: the view, every item's id and version, and the continuation token. */
+    static String of(VMView view, List<? extends VMProjection> items, String token) {
+        MessageDigest digest = sha256();
+        digest.update(view.name().getBytes(StandardCharsets.UTF_8));
+        ByteBuffer version = ByteBuffer.allocate(Long.BYTES);
+        for (VMProjection vm : items) {
+            digest.update(vm.getId().getBytes(StandardCharsets.UTF_8));
+            digest.update(version.clear().putLong(vm.getVersion()).flip());
+        }
+        if (token != null) {
+            digest.update(token.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] hash = Arrays.copyOf(digest.digest(), 16);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.cloud.compute.controller;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.Optional;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.cloud.compute.exception.Problems;
+import com.cloud.compute.exception.TenantThrottledException;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.service.ReactiveVMService;
+import com.cloud.compute.service.impl.TenantRateLimiter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux counterpart of {@link TenantInterceptor}: charges lifecycle mutations to the
+ * principal's or the path VM's owner's bucket and to the global ceiling. Filters run
+ * before handler mapping, so the VM id is matched from the path here. Filters also run
+ * outside controller advice, so a throttled request gets the same 429 body written here
+ * directly.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveTenantFilter implements WebFilter {
+    private static final PathPattern VM_ACTION = PathPatternParser.defaultInstance.parse("/api/v1/vms/{vmId}/{action}");
+
+    private final TenantRateLimiter rateLimiter;
+    private final ReactiveVMService vmService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith("/api/") || !TenantInterceptor.isMutation(exchange.getRequest().getMethod().name())) {
+            return chain.filter(exchange);
+        }
+        return tenantOf(exchange)
+                .flatMap(userId -> {
+                    try {
+                        rateLimiter.acquire(userId.orElse(null));
+                    } catch (TenantThrottledException e) {
+                        return reject(exchange, e, path);
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    /** The principal's name, else the owner of the path's VM, else empty. */
+    private Mono<Optional<String>> tenantOf(ServerWebExchange exchange) {
+        return exchange.getPrincipal()
+                .map(Principal::getName)
+                .switchIfEmpty(Mono.defer(() -> {
+                    PathPattern.PathMatchInfo match =
+                            VM_ACTION.matchAndExtract(exchange.getRequest().getPath().pathWithinApplication());
+                    String vmId = match != null ? match.getUriVariables().get("vmId") : null;
+                    return vmId == null || "bulk".equals(vmId)
+                            ? Mono.empty()
+                            : vmService.getVM(vmId).map(VM::getUserId);
+                }))
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, TenantThrottledException e, String path) {
+        ResponseEntity<ProblemDetail> problem = Problems.of(e);
+        problem.getBody().setInstance(URI.create(path));
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(problem.getStatusCode());
+        response.getHeaders().putAll(problem.getHeaders());
+        response.getHeaders().setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+        try {
+            DataBuffer buffer = response.bufferFactory().wrap(objectMapper.writeValueAsBytes(problem.getBody()));
+            return response.writeWith(Mono.just(buffer));
+        } catch (JsonProcessingException ex) {
+            return response.setComplete();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.cloud.compute.controller;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.cloud.compute.config.EventProperties;
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.exception.InfrastructureFailure;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.exception.Problems;
+import com.cloud.compute.exception.VMNotFoundException;
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMEvent;
+import com.cloud.compute.model.VMEventFilter;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.model.VMView;
+import com.cloud.compute.service.ReactiveVMService;
+import com.cloud.compute.service.impl.VMEventBus;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux twin of {@link VMController} with the same paths, parameters, status codes
+ * and bodies. List endpoints negotiating {@code application/x-ndjson} stream straight
+ * from the Mongo cursor, with demand from the connection driving the fetches.
+ */
+@Slf4j
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/v1/vms")
+@RequiredArgsConstructor
+public class ReactiveVMController {
+    private static final InvalidRequestException INVALID_VIEW =
+            new InvalidRequestException("view must be one of summary, full");
+
+    private final ReactiveVMService vmService;
+    private final VMEventBus eventBus;
+    private final EventProperties eventProperties;
+    private final QueryProperties queryProperties;
+
+    @PostMapping
+    public Mono<ResponseEntity<VM>> createVM(
+            @RequestBody VM vm,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return vmService.createVM(vm, idempotencyKey)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{vmId}/start")
+    public Mono<ResponseEntity<VM>> startVM(@PathVariable String vmId) {
+        return vmService.startVM(vmId)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{vmId}/stop")
+    public Mono<ResponseEntity<VM>> stopVM(@PathVariable String vmId) {
+        return vmService.stopVM(vmId)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{vmId}/terminate")
+    public Mono<ResponseEntity<VM>> terminateVM(@PathVariable String vmId) {
+        return vmService.terminateVM(vmId)
+                .map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/{vmId}/resources")
+    public Mono<ResponseEntity<VM>> updateResources(
+            @PathVariable String vmId,
+            @RequestBody VM.ResourceSpec newResources) {
+        return vmService.updateResources(vmId, newResources)
+                .map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/{vmId}/network")
+    public Mono<ResponseEntity<VM>> updateNetworkConfig(
+            @PathVariable String vmId,
+            @RequestBody VM.NetworkConfig newConfig) {
+        return vmService.updateNetworkConfig(vmId, newConfig)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/bulk/start", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> bulkStartVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.START, request);
+    }
+
+    @PostMapping(value = "/bulk/stop", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> bulkStopVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.STOP, request);
+    }
+
+    @PostMapping(value = "/bulk/terminate", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> bulkTerminateVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.TERMINATE, request);
+    }
+
+    /**
+     * Targets are resolved before the first line, so a bad request still gets a 400; a
+     * failure once streaming has begun ends the stream with a problem line instead.
+     */
+    private Flux<Object> bulkTransition(BulkAction action, BulkRequest request) {
+        return vmService.resolveBulkTargets(request)
+                .flatMapMany(targets -> vmService.bulkTransition(action, targets)
+                        .onErrorResume(e -> {
+                            if (InfrastructureFailure.isInfrastructure(e)) {
+                                log.error("Error running bulk {}: {}", action, e.getMessage(), e);
+                            }
+                            return Mono.just(Problems.bodyOf(e));
+                        }));
+    }
+
+    @GetMapping("/{vmId}")
+    public Mono<ResponseEntity<?>> getVM(@PathVariable String vmId) {
+        // A matching If-None-Match turns this into a 304 without writing the body.
+        return vmService.getVM(vmId)
+                .<ResponseEntity<?>>map(vm -> ResponseEntity.ok().eTag(ETags.of(vm)).body(vm))
+                .switchIfEmpty(Mono.fromSupplier(() -> Problems.of(new VMNotFoundException(vmId))));
+    }
+
+    @GetMapping("/changes")
+    public Mono<ResponseEntity<ChangePage<? extends VMProjection>>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        VMView parsed = parseView(view);
+        return vmService.getChanges(since, limit, parsed.getType())
+                .map(changes -> ResponseEntity.ok()
+                        .eTag(ETags.of(parsed, changes.getItems(), changes.getNext()))
+                        .body(changes));
+    }
+
+    /**
+     * Server-sent stream of state transitions; see {@link VMController#streamEvents}. Events
+     * are emitted only as the connection requests them, and wait in the coalescing buffer.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamEvents(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String vmId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        VMEventFilter filter = new VMEventFilter(vmId, userId, region);
+        return Flux.<ServerSentEvent<Object>>create(sink -> {
+            AtomicReference<VMEventBus.Subscription> ref = new AtomicReference<>();
+            AtomicInteger wip = new AtomicInteger();
+            Runnable pump = () -> {
+                VMEventBus.Subscription subscription = ref.get();
+                if (subscription == null || wip.getAndIncrement() != 0) {
+                    return;
+                }
+                int missed = 1;
+                do {
+                    VMEvent event;
+                    while (sink.requestedFromDownstream() > 0 && (event = subscription.poll()) != null) {
+                        sink.next(ServerSentEvent.<Object>builder(event)
+                                .id(Long.toString(event.getId()))
+                                .event("transition")
+                                .build());
+                    }
+                    if (subscription.isOverflowed()) {
+                        sink.next(reset("overflow"));
+                        sink.complete();
+                        return;
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            };
+            VMEventBus.Subscription subscription = eventBus.subscribe(filter, lastEventId, pump);
+            sink.onDispose(subscription::close);
+            if (subscription.isResyncRequired()) {
+                sink.next(reset("replay-unavailable"));
+            }
+            ref.set(subscription);
+            sink.onRequest(n -> pump.run());
+            pump.run();
+        }).take(eventProperties.getStreamTimeout());
+    }
+
+    @GetMapping("/user/{userId}")
+    public Mono<ResponseEntity<CursorPage<? extends VMProjection>>> getVMsByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byUserId(userId), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/user/{userId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<? extends VMProjection> streamVMsByUserId(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "summary") String view) {
+        return vmService.streamVMs(VMFilter.byUserId(userId), parseView(view).getType());
+    }
+
+    @GetMapping("/state/{state}")
+    public Mono<ResponseEntity<CursorPage<? extends VMProjection>>> getVMsByState(
+            @PathVariable VM.VMState state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byState(state), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<? extends VMProjection> streamVMsByState(
+            @PathVariable VM.VMState state,
+            @RequestParam(defaultValue = "summary") String view) {
+        return vmService.streamVMs(VMFilter.byState(state), parseView(view).getType());
+    }
+
+    @GetMapping("/region/{region}")
+    public Mono<ResponseEntity<CursorPage<? extends VMProjection>>> getVMsByRegion(
+            @PathVariable String region,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byRegion(region), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/region/{region}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<? extends VMProjection> streamVMsByRegion(
+            @PathVariable String region,
+            @RequestParam(defaultValue = "summary") String view) {
+        return vmService.streamVMs(VMFilter.byRegion(region), parseView(view).getType());
+    }
+
+    @GetMapping("/availability-zone/{zone}")
+    public Mono<ResponseEntity<CursorPage<? extends VMProjection>>> getVMsByAvailabilityZone(
+            @PathVariable String zone,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byAvailabilityZone(zone), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/availability-zone/{zone}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<? extends VMProjection> streamVMsByAvailabilityZone(
+            @PathVariable String zone,
+            @RequestParam(defaultValue = "summary") String view) {
+        return vmService.streamVMs(VMFilter.byAvailabilityZone(zone), parseView(view).getType());
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<CursorPage<? extends VMProjection>>> searchVMs(
+            @RequestParam MultiValueMap<String, String> params,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(SearchParams.parse(params, queryProperties.getMaxSearchTerms()), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<? extends VMProjection> streamSearchedVMs(
+            @RequestParam MultiValueMap<String, String> params,
+            @RequestParam(defaultValue = "summary") String view) {
+        return vmService.streamVMs(SearchParams.parse(params, queryProperties.getMaxSearchTerms()),
+                parseView(view).getType());
+    }
+
+    @GetMapping("/stats")
+    public Mono<FleetStats> getFleetStats(
+            @RequestParam(required = false) VM.VMState state,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String availabilityZone,
+            @RequestParam(required = false) String instanceType) {
+        return vmService.getFleetStats(state, region, availabilityZone, instanceType);
+    }
+
+    @GetMapping("/{vmId}/available")
+    public Mono<Boolean> isVMAvailable(@PathVariable String vmId) {
+        return vmService.isVMAvailable(vmId);
+    }
+
+    private Mono<ResponseEntity<CursorPage<? extends VMProjection>>> page(VMFilter filter, String cursor,
+                                                                          Integer limit, String view) {
+        VMView parsed = parseView(view);
+        return vmService.getVMs(filter, cursor, limit, parsed.getType())
+                .map(page -> ResponseEntity.ok()
+                        .eTag(ETags.of(parsed, page.getItems(), page.getNextCursor()))
+                        .body(page));
+    }
+
+    private static VMView parseView(String view) {
+        try {
+            return VMView.valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw INVALID_VIEW;
+        }
+    }
+
+    private static ServerSentEvent<Object> reset(String reason) {
+        return ServerSentEvent.<Object>builder(Map.of("reason", reason)).event("reset").build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.cloud.compute.controller;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.MultiValueMap;
+
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+
+/**
+ * Turns the {@code /search} query string into a {@link VMFilter}. Repeated {@code tag}
+ * parameters must all match, repeated {@code anyTag} parameters need one match, and each
+ * {@code meta.<key>=<value>} must equal the VM's custom metadata entry. {@code state},
+ * {@code region}, {@code availabilityZone} and {@code userId} narrow further; any other
+ * parameter is left to the caller.
+ */
+final class SearchParams {
+    private static final String METADATA_PREFIX = "meta.";
+    private static final InvalidRequestException EMPTY_SEARCH =
+            new InvalidRequestException("search requires at least one predicate");
+    private static final InvalidRequestException INVALID_STATE =
+            new InvalidRequestException("state must be one of " + List.of(VM.VMState.values()));
+    private static final InvalidRequestException INVALID_METADATA_KEY =
+            new InvalidRequestException("meta keys must be non-empty and contain no '.' or leading '$'");
+
+    private SearchParams() {
+    }
+
+    static VMFilter parse(MultiValueMap<String, String> params, int maxTerms) {
+        VMFilter filter = new VMFilter();
+        filter.setUserId(params.getFirst("userId"));
+        filter.setRegion(params.getFirst("region"));
+        filter.setAvailabilityZone(params.getFirst("availabilityZone"));
+        filter.setState(state(params.getFirst("state")));
+        filter.setTags(values(params.get("tag")));
+        filter.setAnyTags(values(params.get("anyTag")));
+        Map<String, String> metadata = new LinkedHashMap<>();
+        params.forEach((name, values) -> {
+            if (name.startsWith(METADATA_PREFIX)) {
+                String key = name.substring(METADATA_PREFIX.length());
+                if (!VMFilter.isValidMetadataKey(key)) {
+                    throw INVALID_METADATA_KEY;
+                }
+                metadata.put(key, values.get(0));
+            }
+        });
+        filter.setMetadata(metadata.isEmpty() ? null : metadata);
+        if (filter.isEmpty()) {
+            throw EMPTY_SEARCH;
+        }
+        int terms = size(filter.getTags()) + size(filter.getAnyTags()) + metadata.size();
+        if (terms > maxTerms) {
+            throw new InvalidRequestException("search accepts at most " + maxTerms + " tag and meta terms");
+        }
+        return filter;
+    }
+
+    private static VM.VMState state(String state) {
+        if (state == null) {
+            return null;
+        }
+        try {
+            return VM.VMState.valueOf(state.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw INVALID_STATE;
+        }
+    }
+
+    private static Set<String> values(List<String> values) {
+        return values == null || values.isEmpty() ? null : new LinkedHashSet<>(values);
+    }
+
+    private static int size(Set<String> values) {
+        return values == null ? 0 : values.size();
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloud.compute.controller;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cloud.compute.model.VMEvent;
+import com.cloud.compute.model.VMEventFilter;
+import com.cloud.compute.service.impl.VMEventBus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bridges a {@link VMEventBus.Subscription} to an {@link SseEmitter}. Whenever events
+ * arrive one drain is scheduled on the event stream executor, so a slow client ties up
+ * one of its threads while its buffer coalesces, never the publisher or a lifecycle task. A {@code reset} event tells the client
+ * to resync from {@code /changes}: sent first if its Last-Event-ID is no longer
+ * replayable, and last if it was dropped for falling behind.
+ */
+@Slf4j
+final class SseEventStream {
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile VMEventBus.Subscription subscription;
+
+    private SseEventStream(SseEmitter emitter, Executor executor) {
+        this.emitter = emitter;
+        this.executor = executor;
+    }
+
+    static SseEmitter open(VMEventBus eventBus, VMEventFilter filter, Long lastEventId, long timeoutMillis,
+                           Executor executor) {
+        SseEventStream stream = new SseEventStream(new SseEmitter(timeoutMillis), executor);
+        VMEventBus.Subscription subscription = eventBus.subscribe(filter, lastEventId, stream::signal);
+        stream.subscription = subscription;
+        stream.emitter.onCompletion(subscription::close);
+        stream.emitter.onTimeout(subscription::close);
+        stream.emitter.onError(e -> subscription.close());
+        if (subscription.isResyncRequired()) {
+            try {
+                stream.emitter.send(reset("replay-unavailable"));
+            } catch (IOException e) {
+                subscription.close();
+            }
+        }
+        // Picks up replayed events and anything published before the field was set.
+        stream.signal();
+        return stream.emitter;
+    }
+
+    private void signal() {
+        if (subscription != null && wip.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Runs on the publisher's thread: shed this stream rather than fail the transition.
+                log.warn("Event stream executor is saturated; closing a stream");
+                subscription.close();
+                emitter.complete();
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        try {
+            do {
+                VMEvent event;
+                while ((event = subscription.poll()) != null) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.getId()))
+                            .name("transition")
+                            .data(event));
+                }
+                if (subscription.isOverflowed()) {
+                    emitter.send(reset("overflow"));
+                    emitter.complete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed.
+            log.debug("Closing event stream: {}", e.getMessage());
+            subscription.close();
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder reset(String reason) {
+        return SseEmitter.event().name("reset").data(Map.of("reason", reason));
+    }
+}
@@ -0,0 +1,78 @@
+package com.cloud.compute.controller;
+
+import java.security.Principal;
+import java.util.Map;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.service.TenantContext;
+import com.cloud.compute.service.VMService;
+import com.cloud.compute.service.impl.TenantRateLimiter;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Charges each lifecycle mutation (any API request but GET, HEAD and OPTIONS) to its
+ * tenant's rate limiter and the global ceiling, and exposes the tenant through
+ * {@link TenantContext} while the controller runs. Reads are not charged. The tenant is
+ * the authenticated principal, or else the owner of the VM in the path; nothing the
+ * client merely asserts counts. A request with neither, such as an unauthenticated
+ * create, is charged to the global ceiling only. A throttled request fails here, so it
+ * is rendered by {@code GlobalExceptionHandler} like any other 429.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class TenantInterceptor implements AsyncHandlerInterceptor {
+    private final TenantRateLimiter rateLimiter;
+    private final VMService vmService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isMutation(request.getMethod())) {
+            return true;
+        }
+        String userId = tenantOf(request);
+        rateLimiter.acquire(userId);
+        TenantContext.set(userId != null ? userId : TenantContext.ANONYMOUS);
+        return true;
+    }
+
+    static boolean isMutation(String method) {
+        return !(HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method));
+    }
+
+    /** The principal's name, else the owner of the path's VM, else null. */
+    private String tenantOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return principal.getName();
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String vmId = variables != null ? variables.get("vmId") : null;
+        // Loaded through the cache, so the handler that follows finds the VM there.
+        return vmId != null ? vmService.getVM(vmId).map(VM::getUserId).orElse(null) : null;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        TenantContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        TenantContext.clear();
+    }
+}
@@ -1,133 +1,363 @@
 package com.cloud.compute.controller;
 
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.cloud.compute.config.BulkProperties;
+import com.cloud.compute.config.EventProperties;
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.exception.InfrastructureFailure;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.exception.Problems;
+import com.cloud.compute.exception.VMNotFoundException;
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
 import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMEventFilter;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.model.VMView;
+import com.cloud.compute.service.VMResult;
 import com.cloud.compute.service.VMService;
+import com.cloud.compute.service.impl.VMEventBus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/v1/vms")
 @RequiredArgsConstructor
 public class VMController {
+    private static final InvalidRequestException INVALID_VIEW =
+            new InvalidRequestException("view must be one of summary, full");
+
     private final VMService vmService;
+    private final BulkProperties bulkProperties;
+    private final ObjectMapper objectMapper;
+    private final VMEventBus eventBus;
+    private final EventProperties eventProperties;
+    private final QueryProperties queryProperties;
+    @Qualifier("eventStreamExecutor")
+    private final Executor eventStreamExecutor;
 
     @PostMapping
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> createVM(@RequestBody VM vm) {
-        return vmService.createVM(vm)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error creating VM: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+    public CompletableFuture<ResponseEntity<?>> createVM(
+            @RequestBody VM vm,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return vmService.createVM(vm, idempotencyKey)
+                .thenApply(VMController::respond);
     }
 
     @PostMapping("/{vmId}/start")
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> startVM(@PathVariable String vmId) {
+    public CompletableFuture<ResponseEntity<?>> startVM(@PathVariable String vmId) {
         return vmService.startVM(vmId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error starting VM: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+                .thenApply(VMController::respond);
     }
 
     @PostMapping("/{vmId}/stop")
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> stopVM(@PathVariable String vmId) {
+    public CompletableFuture<ResponseEntity<?>> stopVM(@PathVariable String vmId) {
         return vmService.stopVM(vmId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error stopping VM: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+                .thenApply(VMController::respond);
     }
 
     @PostMapping("/{vmId}/terminate")
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> terminateVM(@PathVariable String vmId) {
+    public CompletableFuture<ResponseEntity<?>> terminateVM(@PathVariable String vmId) {
         return vmService.terminateVM(vmId)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error terminating VM: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+                .thenApply(VMController::respond);
     }
 
     @PutMapping("/{vmId}/resources")
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> updateResources(
+    public CompletableFuture<ResponseEntity<?>> updateResources(
             @PathVariable String vmId,
             @RequestBody VM.ResourceSpec newResources) {
         return vmService.updateResources(vmId, newResources)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error updating VM resources: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+                .thenApply(VMController::respond);
     }
 
     @PutMapping("/{vmId}/network")
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<ResponseEntity<VM>> updateNetworkConfig(
+    public CompletableFuture<ResponseEntity<?>> updateNetworkConfig(
             @PathVariable String vmId,
             @RequestBody VM.NetworkConfig newConfig) {
         return vmService.updateNetworkConfig(vmId, newConfig)
-                .thenApply(ResponseEntity::ok)
-                .exceptionally(throwable -> {
-                    log.error("Error updating VM network config: {}", throwable.getMessage());
-                    return ResponseEntity.internalServerError().build();
-                });
+                .thenApply(VMController::respond);
+    }
+
+    @PostMapping("/bulk/start")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> bulkStartVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.START, request);
+    }
+
+    @PostMapping("/bulk/stop")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> bulkStopVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.STOP, request);
+    }
+
+    @PostMapping("/bulk/terminate")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> bulkTerminateVMs(@RequestBody BulkRequest request) {
+        return bulkTransition(BulkAction.TERMINATE, request);
+    }
+
+    /**
+     * Streams one NDJSON line per VM as each chunk commits, followed by a final
+     * summary line, so callers see progress on batches of thousands of VMs. Targets are
+     * resolved before the stream opens, so a malformed request or a selector matching
+     * too many VMs is a plain 400. A failure once streaming has begun ends the stream
+     * with a problem line in place of the summary.
+     */
+    private CompletableFuture<ResponseEntity<ResponseBodyEmitter>> bulkTransition(BulkAction action,
+                                                                                 BulkRequest request) {
+        return vmService.resolveBulkTargets(request).thenApply(targets -> {
+            ResponseBodyEmitter emitter = new ResponseBodyEmitter(bulkProperties.getStreamTimeout().toMillis());
+            vmService.bulkTransition(action, targets, outcomes -> sendLines(emitter, outcomes))
+                    .whenComplete((summary, throwable) -> {
+                        if (throwable != null) {
+                            if (InfrastructureFailure.isInfrastructure(throwable)) {
+                                log.error("Error running bulk {}: {}", action, throwable.getMessage(), throwable);
+                            }
+                            sendLines(emitter, List.of(Problems.bodyOf(throwable)));
+                        } else {
+                            sendLines(emitter, List.of(summary));
+                        }
+                        emitter.complete();
+                    });
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(emitter);
+        });
+    }
+
+    private void sendLines(ResponseBodyEmitter emitter, List<?> items) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            for (Object item : items) {
+                lines.append(objectMapper.writeValueAsString(item)).append('\n');
+            }
+            emitter.send(lines.toString(), MediaType.TEXT_PLAIN);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing bulk progress: {}", e.getMessage(), e);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the bulk operation keeps running to completion.
+            log.debug("Dropping bulk progress: {}", e.getMessage());
+        }
     }
 
     @GetMapping("/{vmId}")
-    public ResponseEntity<VM> getVM(@PathVariable String vmId) {
+    public ResponseEntity<?> getVM(@PathVariable String vmId) {
+        // A matching If-None-Match turns this into a 304 without writing the body.
         return vmService.getVM(vmId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+                .<ResponseEntity<?>>map(vm -> ResponseEntity.ok().eTag(ETags.of(vm)).body(vm))
+                .orElseGet(() -> Problems.of(new VMNotFoundException(vmId)));
+    }
+
+    /**
+     * Server-sent stream of state transitions, optionally narrowed to one user, region or
+     * VM. Reconnecting with {@code Last-Event-ID} resumes from the replay buffer.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String vmId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return SseEventStream.open(eventBus, new VMEventFilter(vmId, userId, region), lastEventId,
+                eventProperties.getStreamTimeout().toMillis(), eventStreamExecutor);
+    }
+
+    /**
+     * VMs created or modified since the {@code since} token, oldest first. Pass back
+     * {@code next} on the following poll; an unchanged fleet costs one index probe.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ChangePage<? extends VMProjection>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        VMView parsed = parseView(view);
+        ChangePage<? extends VMProjection> changes = vmService.getChanges(since, limit, parsed.getType());
+        return ResponseEntity.ok()
+                .eTag(ETags.of(parsed, changes.getItems(), changes.getNext()))
+                .body(changes);
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<VM>> getVMsByUserId(@PathVariable String userId) {
-        return ResponseEntity.ok(vmService.getVMsByUserId(userId));
+    public ResponseEntity<CursorPage<? extends VMProjection>> getVMsByUserId(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byUserId(userId), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/user/{userId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVMsByUserId(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "summary") String view) {
+        return streamVMs(VMFilter.byUserId(userId), parseView(view));
     }
 
     @GetMapping("/state/{state}")
-    public ResponseEntity<List<VM>> getVMsByState(@PathVariable VM.VMState state) {
-        return ResponseEntity.ok(vmService.getVMsByState(state));
+    public ResponseEntity<CursorPage<? extends VMProjection>> getVMsByState(
+            @PathVariable VM.VMState state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byState(state), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/state/{state}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVMsByState(
+            @PathVariable VM.VMState state,
+            @RequestParam(defaultValue = "summary") String view) {
+        return streamVMs(VMFilter.byState(state), parseView(view));
     }
 
     @GetMapping("/region/{region}")
-    public ResponseEntity<List<VM>> getVMsByRegion(@PathVariable String region) {
-        return ResponseEntity.ok(vmService.getVMsByRegion(region));
+    public ResponseEntity<CursorPage<? extends VMProjection>> getVMsByRegion(
+            @PathVariable String region,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byRegion(region), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/region/{region}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVMsByRegion(
+            @PathVariable String region,
+            @RequestParam(defaultValue = "summary") String view) {
+        return streamVMs(VMFilter.byRegion(region), parseView(view));
     }
 
     @GetMapping("/availability-zone/{zone}")
-    public ResponseEntity<List<VM>> getVMsByAvailabilityZone(@PathVariable String zone) {
-        return ResponseEntity.ok(vmService.getVMsByAvailabilityZone(zone));
+    public ResponseEntity<CursorPage<? extends VMProjection>> getVMsByAvailabilityZone(
+            @PathVariable String zone,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(VMFilter.byAvailabilityZone(zone), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/availability-zone/{zone}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamVMsByAvailabilityZone(
+            @PathVariable String zone,
+            @RequestParam(defaultValue = "summary") String view) {
+        return streamVMs(VMFilter.byAvailabilityZone(zone), parseView(view));
+    }
+
+    /** Tag and custom metadata search; see {@link SearchParams} for the parameters. */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<? extends VMProjection>> searchVMs(
+            @RequestParam MultiValueMap<String, String> params,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "summary") String view) {
+        return page(SearchParams.parse(params, queryProperties.getMaxSearchTerms()), cursor, limit, view);
+    }
+
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchedVMs(
+            @RequestParam MultiValueMap<String, String> params,
+            @RequestParam(defaultValue = "summary") String view) {
+        return streamVMs(SearchParams.parse(params, queryProperties.getMaxSearchTerms()), parseView(view));
+    }
+
+    /**
+     * Writes matching VMs as NDJSON while the Mongo cursor produces them, so memory
+     * stays flat regardless of result size.
+     */
+    private ResponseEntity<StreamingResponseBody> streamVMs(VMFilter filter, VMView view) {
+        StreamingResponseBody body = out -> {
+            try (Stream<? extends VMProjection> vms = vmService.streamVMs(filter, view.getType());
+                 SequenceWriter writer = ndjsonWriter().writeValues(out)) {
+                Iterator<? extends VMProjection> iterator = vms.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private ResponseEntity<CursorPage<? extends VMProjection>> page(VMFilter filter, String cursor, Integer limit,
+                                                                    String view) {
+        VMView parsed = parseView(view);
+        CursorPage<? extends VMProjection> page = vmService.getVMs(filter, cursor, limit, parsed.getType());
+        return ResponseEntity.ok()
+                .eTag(ETags.of(parsed, page.getItems(), page.getNextCursor()))
+                .body(page);
+    }
+
+    private static VMView parseView(String view) {
+        try {
+            return VMView.valueOf(view.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw INVALID_VIEW;
+        }
+    }
+
+    /**
+     * Expected failures arrive as results and are rendered here without being thrown.
+     * Faults complete the future exceptionally and reach GlobalExceptionHandler.
+     */
+    private static ResponseEntity<?> respond(VMResult result) {
+        return result.isOk() ? ResponseEntity.ok(result.vm()) : Problems.of(result.error());
+    }
+
+    private ObjectWriter ndjsonWriter() {
+        return objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<FleetStats> getFleetStats(
+            @RequestParam(required = false) VM.VMState state,
+            @RequestParam(required = false) String region,
+            @RequestParam(required = false) String availabilityZone,
+            @RequestParam(required = false) String instanceType) {
+        return ResponseEntity.ok(vmService.getFleetStats(state, region, availabilityZone, instanceType));
     }
 
     @GetMapping("/{vmId}/available")
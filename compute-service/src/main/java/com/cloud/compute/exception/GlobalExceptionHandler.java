@@ -1,42 +1,42 @@
 package com.cloud.compute.exception;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
-import org.springframework.web.context.request.WebRequest;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Renders failures as {@link ProblemDetail}s for both the MVC and the WebFlux stack.
+ * Expected outcomes (400, 404, 409, 429, 503) are logged at DEBUG; only faults are
+ * logged at ERROR.
+ */
 @Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(VMException.class)
-    public ResponseEntity<Map<String, Object>> handleVMException(VMException ex, WebRequest request) {
-        log.error("VM Exception: {}", ex.getMessage());
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", LocalDateTime.now());
-        body.put("message", ex.getMessage());
-        body.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-        body.put("error", "VM Operation Failed");
-        body.put("path", request.getDescription(false));
-        return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<ProblemDetail> handleVMException(VMException ex) {
+        if (InfrastructureFailure.isInfrastructure(ex)) {
+            log.error("VM operation failed: {}", ex.getMessage(), ex);
+        } else {
+            log.debug("Rejected request: {}", ex.getMessage());
+        }
+        return Problems.of(ex);
     }
 
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<Map<String, Object>> handleGlobalException(Exception ex, WebRequest request) {
-        log.error("Unexpected error: {}", ex.getMessage());
-        Map<String, Object> body = new HashMap<>();
-        body.put("timestamp", LocalDateTime.now());
-        body.put("message", "An unexpected error occurred");
-        body.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
-        body.put("error", "Internal Server Error");
-        body.put("path", request.getDescription(false));
-        return new ResponseEntity<>(body, HttpStatus.INTERNAL_SERVER_ERROR);
+    public ResponseEntity<ProblemDetail> handleGlobalException(Exception ex) {
+        if (ex instanceof ErrorResponse response) {
+            // Malformed bodies, bad parameters and the like already carry their 4xx problem.
+            log.debug("Rejected request: {}", ex.getMessage());
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .body(response.getBody());
+        }
+        log.error("Unexpected error: {}", ex.getMessage(), ex);
+        return Problems.internalError();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.cloud.compute.exception;
+
+import com.cloud.compute.model.VM;
+
+import lombok.Getter;
+
+@Getter
+public class IllegalStateTransitionException extends VMException {
+    private final String vmId;
+    private final VM.VMState currentState;
+
+    public IllegalStateTransitionException(String vmId, VM.VMState currentState, String message) {
+        super(message, false);
+        this.vmId = vmId;
+        this.currentState = currentState;
+    }
+}
@@ -0,0 +1,34 @@
+package com.cloud.compute.exception;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Tells infrastructure failures (Mongo down or timing out, journal I/O, anything
+ * unexpected, bugs included) from outcomes that are the caller's doing or deliberate
+ * shedding. Only the typed domain exceptions count as the latter. Used as
+ * the circuit breaker's {@code recordFailurePredicate} and by the concurrency limiter,
+ * so "VM is not in STOPPED state" never opens the breaker or shrinks the limit.
+ */
+public class InfrastructureFailure implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        return isInfrastructure(throwable);
+    }
+
+    public static boolean isInfrastructure(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return !(cause instanceof IllegalStateTransitionException
+                || cause instanceof VMNotFoundException
+                || cause instanceof InvalidRequestException
+                || cause instanceof VMNameTakenException
+                || cause instanceof InsufficientCapacityException
+                || cause instanceof RetryLaterException);
+    }
+}
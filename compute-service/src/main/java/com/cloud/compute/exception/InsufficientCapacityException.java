@@ -0,0 +1,7 @@
+package com.cloud.compute.exception;
+
+public class InsufficientCapacityException extends VMException {
+    public InsufficientCapacityException(String message) {
+        super(message, false);
+    }
+}
@@ -0,0 +1,7 @@
+package com.cloud.compute.exception;
+
+public class InvalidRequestException extends VMException {
+    public InvalidRequestException(String message) {
+        super(message, false);
+    }
+}
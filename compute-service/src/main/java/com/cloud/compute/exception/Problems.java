@@ -0,0 +1,86 @@
+package com.cloud.compute.exception;
+
+import java.util.concurrent.CompletionException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * RFC 7807 bodies for {@link VMException}s, shared by {@link GlobalExceptionHandler} and the
+ * controllers rendering failed service results. The framework fills in {@code instance}
+ * from the request path.
+ */
+public final class Problems {
+
+    private Problems() {
+    }
+
+    public static ResponseEntity<ProblemDetail> of(VMException ex) {
+        HttpStatus status = statusOf(ex);
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
+        problem.setTitle(titleOf(ex, status));
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (ex instanceof RetryLaterException retryLater) {
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryLater.getRetryAfter().toSeconds()));
+        }
+        return response.body(problem);
+    }
+
+    /** A fault whose details stay in the log. */
+    public static ResponseEntity<ProblemDetail> internalError() {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR,
+                "An unexpected error occurred");
+        problem.setTitle("Internal Server Error");
+        return ResponseEntity.internalServerError().body(problem);
+    }
+
+    /**
+     * The body {@link #of} or {@link #internalError} would render for {@code throwable},
+     * for failures reported after the response status is already sent.
+     */
+    public static ProblemDetail bodyOf(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        return cause instanceof VMException ex && !InfrastructureFailure.isInfrastructure(ex)
+                ? of(ex).getBody()
+                : internalError().getBody();
+    }
+
+    public static HttpStatus statusOf(VMException ex) {
+        if (ex instanceof InvalidRequestException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (ex instanceof VMNotFoundException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (ex instanceof IllegalStateTransitionException || ex instanceof VMNameTakenException
+                || ex instanceof InsufficientCapacityException) {
+            return HttpStatus.CONFLICT;
+        }
+        if (ex instanceof ServiceOverloadedException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (ex instanceof RetryLaterException) {
+            return HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    private static String titleOf(VMException ex, HttpStatus status) {
+        if (ex instanceof IllegalStateTransitionException) {
+            return "Illegal State Transition";
+        }
+        if (ex instanceof VMNameTakenException) {
+            return "VM Name Taken";
+        }
+        if (ex instanceof InsufficientCapacityException) {
+            return "Insufficient Capacity";
+        }
+        if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            return "VM Operation Failed";
+        }
+        return status.getReasonPhrase();
+    }
+}
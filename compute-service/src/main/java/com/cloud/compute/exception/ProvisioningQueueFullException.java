@@ -0,0 +1,9 @@
+package com.cloud.compute.exception;
+
+import java.time.Duration;
+
+public class ProvisioningQueueFullException extends RetryLaterException {
+    public ProvisioningQueueFullException(Duration retryAfter) {
+        super("Provisioning queue is full, retry later", retryAfter);
+    }
+}
@@ -0,0 +1,16 @@
+package com.cloud.compute.exception;
+
+import java.time.Duration;
+
+import lombok.Getter;
+
+/** Load was shed; rendered as 429 with a Retry-After of {@link #getRetryAfter()}. */
+@Getter
+public class RetryLaterException extends VMException {
+    private final Duration retryAfter;
+
+    public RetryLaterException(String message, Duration retryAfter) {
+        super(message, false);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,10 @@
+package com.cloud.compute.exception;
+
+import java.time.Duration;
+
+/** Shed by the adaptive concurrency limiter; rendered as 503 rather than 429. */
+public class ServiceOverloadedException extends RetryLaterException {
+    public ServiceOverloadedException(Duration retryAfter) {
+        super("Service is overloaded, retry later", retryAfter);
+    }
+}
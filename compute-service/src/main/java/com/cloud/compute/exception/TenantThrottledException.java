@@ -0,0 +1,15 @@
+package com.cloud.compute.exception;
+
+import java.time.Duration;
+
+import lombok.Getter;
+
+@Getter
+public class TenantThrottledException extends RetryLaterException {
+    private final String userId;
+
+    public TenantThrottledException(String userId, String message, Duration retryAfter) {
+        super(message, retryAfter);
+        this.userId = userId;
+    }
+}
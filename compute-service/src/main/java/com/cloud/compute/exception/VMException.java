@@ -8,4 +8,12 @@ public class VMException extends RuntimeException {
     public VMException(String message, Throwable cause) {
         super(message, cause);
     }
-} 
\ No newline at end of file
+
+    /**
+     * For expected outcomes such as a missing VM or invalid input. No stack trace is
+     * captured, so these are cheap to create and fixed-message ones can be shared.
+     */
+    protected VMException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+}
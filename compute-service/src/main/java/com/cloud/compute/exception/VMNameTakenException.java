@@ -0,0 +1,13 @@
+package com.cloud.compute.exception;
+
+import lombok.Getter;
+
+@Getter
+public class VMNameTakenException extends VMException {
+    private final String name;
+
+    public VMNameTakenException(String name) {
+        super("VM with name " + name + " already exists", false);
+        this.name = name;
+    }
+}
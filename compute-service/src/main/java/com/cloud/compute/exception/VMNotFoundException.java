@@ -0,0 +1,13 @@
+package com.cloud.compute.exception;
+
+import lombok.Getter;
+
+@Getter
+public class VMNotFoundException extends VMException {
+    private final String vmId;
+
+    public VMNotFoundException(String vmId) {
+        super("VM not found: " + vmId, false);
+        this.vmId = vmId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.cloud.compute.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum BulkAction {
+    START(EnumSet.of(VM.VMState.STOPPED), VM.VMState.RUNNING),
+    STOP(EnumSet.of(VM.VMState.RUNNING), VM.VMState.STOPPED),
+    TERMINATE(VM.VMState.sourcesOf(VM.VMState.TERMINATED), VM.VMState.TERMINATED);
+
+    private final Set<VM.VMState> expectedStates;
+    private final VM.VMState targetState;
+}
@@ -0,0 +1,16 @@
+package com.cloud.compute.model;
+
+import com.cloud.compute.service.TransitionResult;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOutcome {
+    private String vmId;
+    private TransitionResult.Status status;
+    private VM.VMState state;
+}
@@ -0,0 +1,15 @@
+package com.cloud.compute.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Targets of a bulk lifecycle call: either an explicit list of VM ids or a selector.
+ * When both are present the id list wins.
+ */
+@Data
+public class BulkRequest {
+    private List<String> vmIds;
+    private VMFilter selector;
+}
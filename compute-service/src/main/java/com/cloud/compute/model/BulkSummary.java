@@ -0,0 +1,24 @@
+package com.cloud.compute.model;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BulkSummary {
+    private final BulkAction action;
+    private final int requested;
+    private int applied;
+    private int illegal;
+    private int notFound;
+
+    public synchronized void record(List<BulkOutcome> outcomes) {
+        for (BulkOutcome outcome : outcomes) {
+            switch (outcome.getStatus()) {
+                case APPLIED -> applied++;
+                case ILLEGAL -> illegal++;
+                case NOT_FOUND -> notFound++;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.cloud.compute.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of the change feed: VMs created or modified after the {@code since} token,
+ * oldest change first. {@code next} is always set and is the {@code since} to poll with
+ * next; {@code hasMore} means more changes are ready and the caller need not wait.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangePage<T> {
+    private List<T> items;
+    private String next;
+    private boolean hasMore;
+}
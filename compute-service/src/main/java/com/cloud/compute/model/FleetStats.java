@@ -0,0 +1,19 @@
+package com.cloud.compute.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FleetStats {
+    private long count;
+    private long cpuCores;
+    private long memoryGB;
+    private long storageGB;
+    private long networkBandwidthMbps;
+    private List<FleetStatsGroup> groups;
+}
@@ -0,0 +1,17 @@
+package com.cloud.compute.model;
+
+import lombok.Data;
+
+/** VM count and allocated capacity for one state × region × AZ × instanceType cell. */
+@Data
+public class FleetStatsGroup {
+    private VM.VMState state;
+    private String region;
+    private String availabilityZone;
+    private String instanceType;
+    private long count;
+    private long cpuCores;
+    private long memoryGB;
+    private long storageGB;
+    private long networkBandwidthMbps;
+}
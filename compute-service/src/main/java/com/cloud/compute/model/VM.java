@@ -1,19 +1,42 @@
 package com.cloud.compute.model;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 
 @Data
 @Document(collection = "vms")
-public class VM {
+@CompoundIndexes({
+    @CompoundIndex(name = "userId_state", def = "{'userId': 1, 'state': 1}"),
+    @CompoundIndex(name = "region_availabilityZone_state", def = "{'region': 1, 'availabilityZone': 1, 'state': 1}"),
+    @CompoundIndex(name = "availabilityZone_state", def = "{'availabilityZone': 1, 'state': 1}"),
+    @CompoundIndex(name = "state_id", def = "{'state': 1, '_id': 1}"),
+    @CompoundIndex(name = "userId_id", def = "{'userId': 1, '_id': 1}"),
+    @CompoundIndex(name = "region_id", def = "{'region': 1, '_id': 1}"),
+    @CompoundIndex(name = "availabilityZone_id", def = "{'availabilityZone': 1, '_id': 1}"),
+    @CompoundIndex(name = "version_id", def = "{'version': 1, '_id': 1}"),
+    @CompoundIndex(name = "tags_id", def = "{'tags': 1, '_id': 1}"),
+    // Compound wildcard (MongoDB 7.0+): any custom metadata key, with the _id order keyset pages sort on.
+    @CompoundIndex(name = "customMetadata_id", def = "{'metadata.customMetadata.$**': 1, '_id': 1}")
+})
+public class VM implements VMProjection {
     @Id
     private String id;
+    @Indexed(name = "name_unique", unique = true, sparse = true)
     private String name;
     private String imageId;
     private String instanceType;
@@ -24,17 +47,51 @@ public class VM {
     private String userId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    /** Stamped on every write from the change sequence; orders the change feed and backs ETags. */
+    private long version;
     private String region;
     private String availabilityZone;
     private List<String> tags;
     private VMMetadata metadata;
+    /** Which instance is provisioning this VM while it is PENDING; internal, never serialized to clients. */
+    @JsonIgnore
+    private ProvisioningLease provisioningLease;
 
     public enum VMState {
         PENDING,
         RUNNING,
         STOPPED,
         TERMINATED,
-        ERROR
+        ERROR;
+
+        private static final Map<VMState, Set<VMState>> TRANSITIONS = new EnumMap<>(VMState.class);
+
+        static {
+            TRANSITIONS.put(PENDING, EnumSet.of(RUNNING, STOPPED, TERMINATED, ERROR));
+            TRANSITIONS.put(RUNNING, EnumSet.of(STOPPED, TERMINATED, ERROR));
+            TRANSITIONS.put(STOPPED, EnumSet.of(RUNNING, TERMINATED, ERROR));
+            TRANSITIONS.put(ERROR, EnumSet.of(STOPPED, TERMINATED));
+            TRANSITIONS.put(TERMINATED, EnumSet.noneOf(VMState.class));
+        }
+
+        public boolean canTransitionTo(VMState target) {
+            return TRANSITIONS.get(this).contains(target);
+        }
+
+        public Set<VMState> allowedTargets() {
+            return Collections.unmodifiableSet(TRANSITIONS.get(this));
+        }
+
+        /** States from which {@code target} can legally be reached. */
+        public static Set<VMState> sourcesOf(VMState target) {
+            Set<VMState> sources = EnumSet.noneOf(VMState.class);
+            TRANSITIONS.forEach((from, targets) -> {
+                if (targets.contains(target)) {
+                    sources.add(from);
+                }
+            });
+            return sources;
+        }
     }
 
     @Data
@@ -54,11 +111,18 @@ public class VM {
         private List<String> securityGroupIds;
     }
 
+    @Data
+    public static class ProvisioningLease {
+        private String owner;
+        private LocalDateTime until;
+    }
+
     @Data
     public static class VMMetadata {
         private String hostname;
         private String sshKey;
         private String userData;
+        /** Covered by the customMetadata_id wildcard index so any key can be searched without declaring it. */
         private Map<String, String> customMetadata;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.cloud.compute.model;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A committed VM state transition. {@code previousState} is null for a create. Ids are
+ * assigned by the event bus and increase by one per event on an instance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VMEvent {
+    private long id;
+    private String vmId;
+    private String userId;
+    private String region;
+    private String availabilityZone;
+    private VM.VMState previousState;
+    private VM.VMState state;
+    private long version;
+    private LocalDateTime timestamp;
+
+    public static VMEvent of(long id, VM.VMState previousState, VM vm) {
+        return new VMEvent(id, vm.getId(), vm.getUserId(), vm.getRegion(), vm.getAvailabilityZone(),
+                previousState, vm.getState(), vm.getVersion(), vm.getUpdatedAt());
+    }
+}
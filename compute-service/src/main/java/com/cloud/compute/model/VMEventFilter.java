@@ -0,0 +1,21 @@
+package com.cloud.compute.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Which transitions an event stream delivers; null fields match every event. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VMEventFilter {
+    private String vmId;
+    private String userId;
+    private String region;
+
+    public boolean matches(VMEvent event) {
+        return (vmId == null || vmId.equals(event.getVmId()))
+                && (userId == null || userId.equals(event.getUserId()))
+                && (region == null || region.equals(event.getRegion()));
+    }
+}
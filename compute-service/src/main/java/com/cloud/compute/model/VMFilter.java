@@ -0,0 +1,75 @@
+package com.cloud.compute.model;
+
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Data;
+
+/**
+ * Filter over indexed VM fields; null fields are ignored. Scalar fields, every tag in
+ * {@code tags} and every {@code metadata} entry must all match, and when {@code anyTags}
+ * is set the VM must also carry at least one of them.
+ */
+@Data
+public class VMFilter {
+    private String userId;
+    private VM.VMState state;
+    private String region;
+    private String availabilityZone;
+    private Set<String> tags;
+    private Set<String> anyTags;
+    /** Entries of {@link VM.VMMetadata#getCustomMetadata()}, matched by equality. */
+    private Map<String, String> metadata;
+
+    public static VMFilter byUserId(String userId) {
+        VMFilter filter = new VMFilter();
+        filter.setUserId(userId);
+        return filter;
+    }
+
+    public static VMFilter byState(VM.VMState state) {
+        VMFilter filter = new VMFilter();
+        filter.setState(state);
+        return filter;
+    }
+
+    public static VMFilter byRegion(String region) {
+        VMFilter filter = new VMFilter();
+        filter.setRegion(region);
+        return filter;
+    }
+
+    public static VMFilter byAvailabilityZone(String availabilityZone) {
+        VMFilter filter = new VMFilter();
+        filter.setAvailabilityZone(availabilityZone);
+        return filter;
+    }
+
+    public static VMFilter byTag(String tag) {
+        VMFilter filter = new VMFilter();
+        filter.setTags(Set.of(tag));
+        return filter;
+    }
+
+    /**
+     * Metadata keys become Mongo field paths, so they must be non-empty and free of
+     * {@code .} and a leading {@code $}.
+     */
+    public static boolean isValidMetadataKey(String key) {
+        return key != null && !key.isEmpty() && key.indexOf('.') < 0 && key.charAt(0) != '$';
+    }
+
+    public boolean hasValidMetadata() {
+        return metadata == null || metadata.entrySet().stream()
+                .allMatch(entry -> isValidMetadataKey(entry.getKey()) && entry.getValue() != null);
+    }
+
+    public boolean isEmpty() {
+        return userId == null && state == null && region == null && availabilityZone == null
+                && isEmpty(tags) && isEmpty(anyTags) && (metadata == null || metadata.isEmpty());
+    }
+
+    private static boolean isEmpty(Set<String> values) {
+        return values == null || values.isEmpty();
+    }
+}
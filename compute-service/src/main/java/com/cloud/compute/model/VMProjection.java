@@ -0,0 +1,8 @@
+package com.cloud.compute.model;
+
+/** A view of a VM document that can be keyset-paginated on its id, or on its version in the change feed. */
+public interface VMProjection {
+    String getId();
+
+    long getVersion();
+}
@@ -0,0 +1,26 @@
+package com.cloud.compute.model;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * Projection of a VM for list and poll endpoints. Leaves out metadata (userData,
+ * sshKey, customMetadata), network config and tags, which dominate document size.
+ */
+@Data
+public class VMSummary implements VMProjection {
+    /** Mongo fields loaded for this projection; must match the properties below. */
+    public static final String[] FIELDS = {
+        "name", "state", "region", "availabilityZone", "instanceType", "updatedAt", "version"
+    };
+
+    private String id;
+    private String name;
+    private VM.VMState state;
+    private String region;
+    private String availabilityZone;
+    private String instanceType;
+    private LocalDateTime updatedAt;
+    private long version;
+}
@@ -0,0 +1,13 @@
+package com.cloud.compute.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum VMView {
+    SUMMARY(VMSummary.class),
+    FULL(VM.class);
+
+    private final Class<? extends VMProjection> type;
+}
@@ -0,0 +1,162 @@
+package com.cloud.compute.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.IndexProperties;
+import com.cloud.compute.model.VM;
+import com.mongodb.client.FindIterable;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the indexes declared on {@link VM} and verifies that every query shape
+ * issued by {@link VMRepository} is index-backed when explained with the sort it is
+ * issued with. Startup fails if any of them would fall back to a collection scan, an
+ * unbounded walk of {@code _id_}, or an in-memory sort.
+ */
+@Slf4j
+@Component
+@Profile("!embedded")
+@RequiredArgsConstructor
+public class VMIndexInitializer implements ApplicationRunner {
+    private static final String ID_INDEX = "_id_";
+
+    private final MongoTemplate mongoTemplate;
+    private final IndexProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.isEnsureOnStartup()) {
+            ensureIndexes();
+        }
+        if (properties.isVerifyQueryPlans()) {
+            verifyQueryPlans();
+        }
+    }
+
+    void ensureIndexes() {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        IndexOperations indexOps = mongoTemplate.indexOps(VM.class);
+        resolver.resolveIndexFor(VM.class).forEach(indexOps::ensureIndex);
+        log.info("Ensured indexes on {}", mongoTemplate.getCollectionName(VM.class));
+    }
+
+    void verifyQueryPlans() {
+        Map<String, QueryShape> shapes = queryShapes();
+        List<String> unindexed = new ArrayList<>();
+        shapes.forEach((name, shape) -> {
+            FindIterable<Document> find = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VM.class))
+                    .find(shape.filter());
+            if (shape.sort() != null) {
+                find.sort(shape.sort());
+            }
+            Document queryPlanner = find.explain().get("queryPlanner", Document.class);
+            if (queryPlanner != null && !isIndexBacked(queryPlanner)) {
+                unindexed.add(name);
+            }
+        });
+        if (!unindexed.isEmpty()) {
+            throw new IllegalStateException("Repository queries are not index-backed: " + unindexed);
+        }
+        log.info("Verified query plans for {} repository query shapes", shapes.size());
+    }
+
+    /** A filter and the sort the repository issues it with; {@code sort} is null for unsorted finders. */
+    record QueryShape(Document filter, Document sort) {
+    }
+
+    /** One shape per distinct query issued by VMRepository and its custom fragment, with its real sort. */
+    static Map<String, QueryShape> queryShapes() {
+        Document byId = new Document("_id", 1);
+        Map<String, QueryShape> shapes = new LinkedHashMap<>();
+        // Derived finders.
+        shapes.put("findByUserId", new QueryShape(new Document("userId", "_"), null));
+        shapes.put("findByState", new QueryShape(new Document("state", VM.VMState.RUNNING.name()), null));
+        shapes.put("findByName", new QueryShape(new Document("name", "_"), null));
+        shapes.put("findByRegion", new QueryShape(new Document("region", "_"), null));
+        shapes.put("findByAvailabilityZone", new QueryShape(new Document("availabilityZone", "_"), null));
+        shapes.put("findByRegionAndAvailabilityZone",
+                new QueryShape(new Document("region", "_").append("availabilityZone", "_"), null));
+        shapes.put("findByUserIdAndState", new QueryShape(
+                new Document("userId", "_").append("state", VM.VMState.RUNNING.name()), null));
+        // Keyset pages, NDJSON streams and bulk selectors over VMFilter, all sorted on _id.
+        shapes.put("listByUserId", new QueryShape(new Document("userId", "_"), byId));
+        shapes.put("listByState", new QueryShape(new Document("state", VM.VMState.RUNNING.name()), byId));
+        shapes.put("listByRegion", new QueryShape(new Document("region", "_"), byId));
+        shapes.put("listByAvailabilityZone", new QueryShape(new Document("availabilityZone", "_"), byId));
+        shapes.put("searchByTags",
+                new QueryShape(new Document("tags", new Document("$all", List.of("_", "-"))), byId));
+        shapes.put("searchByCustomMetadata",
+                new QueryShape(new Document("metadata.customMetadata._", "_"), byId));
+        Query changes = VMQueries.changes(0L, "_", Long.MAX_VALUE, 1);
+        shapes.put("findChanges", new QueryShape(changes.getQueryObject(), changes.getSortObject()));
+        return shapes;
+    }
+
+    /**
+     * False if the winning plan scans the collection, walks the whole {@code _id_} index
+     * only to filter on other fields (a collection scan in _id order), or sorts in memory.
+     */
+    private static boolean isIndexBacked(Document queryPlanner) {
+        Document winningPlan = planOf(queryPlanner.get("winningPlan", Document.class));
+        return !anyStage(winningPlan, stage -> "COLLSCAN".equals(stage.getString("stage"))
+                || "SORT".equals(stage.getString("stage"))
+                || isFilteredIdScan(stage));
+    }
+
+    /** A FETCH with a filter over an IXSCAN of {@code _id_} that is unbounded. */
+    private static boolean isFilteredIdScan(Document stage) {
+        if (!"FETCH".equals(stage.getString("stage")) || stage.get("filter") == null) {
+            return false;
+        }
+        Document input = stage.get("inputStage", Document.class);
+        if (input == null || !"IXSCAN".equals(input.getString("stage"))
+                || !ID_INDEX.equals(input.getString("indexName"))) {
+            return false;
+        }
+        Document bounds = input.get("indexBounds", Document.class);
+        List<String> idBounds = bounds == null ? null : bounds.getList("_id", String.class);
+        return idBounds != null && idBounds.equals(List.of("[MinKey, MaxKey]"));
+    }
+
+    /** The plan tree; servers running the slot-based engine nest it under {@code queryPlan}. */
+    private static Document planOf(Document plan) {
+        if (plan == null) {
+            return null;
+        }
+        Document queryPlan = plan.get("queryPlan", Document.class);
+        return queryPlan != null ? queryPlan : plan;
+    }
+
+    private static boolean anyStage(Document stage, Predicate<Document> predicate) {
+        if (stage == null) {
+            return false;
+        }
+        if (predicate.test(stage)) {
+            return true;
+        }
+        if (anyStage(stage.get("inputStage", Document.class), predicate)) {
+            return true;
+        }
+        List<Document> inputStages = stage.getList("inputStages", Document.class);
+        return inputStages != null && inputStages.stream().anyMatch(input -> anyStage(input, predicate));
+    }
+}
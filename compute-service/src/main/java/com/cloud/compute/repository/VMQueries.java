@@ -0,0 +1,71 @@
+package com.cloud.compute.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.model.VMSummary;
+
+/** Query building shared by the blocking and reactive Mongo repositories. */
+public final class VMQueries {
+    private static final String CUSTOM_METADATA = "metadata.customMetadata.";
+
+    private VMQueries() {
+    }
+
+    public static Query project(Query query, Class<? extends VMProjection> view) {
+        if (view == VMSummary.class) {
+            query.fields().include(VMSummary.FIELDS);
+        }
+        return query;
+    }
+
+    /**
+     * VMs whose (version, _id) comes after ({@code afterVersion}, {@code afterId}) and whose
+     * version is at most {@code maxVersion}, in that order. Served by the version_id index.
+     */
+    public static Query changes(long afterVersion, String afterId, long maxVersion, int limit) {
+        Criteria criteria = Criteria.where("version").lte(maxVersion);
+        if (afterId == null) {
+            criteria.gt(afterVersion);
+        } else {
+            criteria.orOperator(Criteria.where("version").gt(afterVersion),
+                    Criteria.where("version").is(afterVersion).and("_id").gt(afterId));
+        }
+        return Query.query(criteria).with(Sort.by("version", "_id")).limit(limit);
+    }
+
+    public static Criteria criteriaFor(VMFilter filter) {
+        Criteria criteria = new Criteria();
+        if (filter.getUserId() != null) {
+            criteria.and("userId").is(filter.getUserId());
+        }
+        if (filter.getState() != null) {
+            criteria.and("state").is(filter.getState());
+        }
+        if (filter.getRegion() != null) {
+            criteria.and("region").is(filter.getRegion());
+        }
+        if (filter.getAvailabilityZone() != null) {
+            criteria.and("availabilityZone").is(filter.getAvailabilityZone());
+        }
+        boolean allTags = filter.getTags() != null && !filter.getTags().isEmpty();
+        boolean anyTags = filter.getAnyTags() != null && !filter.getAnyTags().isEmpty();
+        if (allTags || anyTags) {
+            // One criteria per key: both operators land in the same {tags: {...}} document.
+            Criteria tags = criteria.and("tags");
+            if (allTags) {
+                tags.all(filter.getTags());
+            }
+            if (anyTags) {
+                tags.in(filter.getAnyTags());
+            }
+        }
+        if (filter.getMetadata() != null) {
+            filter.getMetadata().forEach((key, value) -> criteria.and(CUSTOM_METADATA + key).is(value));
+        }
+        return criteria;
+    }
+}
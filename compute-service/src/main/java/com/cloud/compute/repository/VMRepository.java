@@ -3,17 +3,27 @@ package com.cloud.compute.repository;
 import java.util.List;
 import java.util.Optional;
 
-import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.stereotype.Repository;
 
 import com.cloud.compute.model.VM;
 
+/**
+ * Exposes CRUD plus the queries the service layer issues, rather than all of
+ * {@code MongoRepository}: sorted and offset scans and query by example have no index
+ * behind them here, and the embedded store would have to emulate them. {@code insert}
+ * is served by Spring Data's Mongo base repository.
+ */
 @Repository
-public interface VMRepository extends MongoRepository<VM, String> {
+public interface VMRepository extends ListCrudRepository<VM, String>, VMRepositoryCustom {
+    <S extends VM> S insert(S entity);
+    <S extends VM> List<S> insert(Iterable<S> entities);
     List<VM> findByUserId(String userId);
     List<VM> findByState(VM.VMState state);
     Optional<VM> findByName(String name);
+    List<VM> findByRegion(String region);
+    List<VM> findByAvailabilityZone(String availabilityZone);
     List<VM> findByRegionAndAvailabilityZone(String region, String availabilityZone);
     List<VM> findByUserIdAndState(String userId, VM.VMState state);
     boolean existsByName(String name);
-} 
\ No newline at end of file
+}
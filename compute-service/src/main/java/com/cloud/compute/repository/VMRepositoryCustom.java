@@ -0,0 +1,86 @@
+package com.cloud.compute.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cloud.compute.model.FleetStatsGroup;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+
+public interface VMRepositoryCustom {
+    /**
+     * Applies {@code update} to the VM only if it is currently in one of
+     * {@code expectedStates}, in a single findAndModify round trip.
+     *
+     * @return the document as it was before the update, or empty if the VM is missing
+     *         or in another state
+     */
+    Optional<VM> updateIfInState(String vmId, Collection<VM.VMState> expectedStates, Update update);
+
+    /**
+     * Atomically claims the first PENDING VM, in {@code _id} order, whose provisioning lease
+     * is missing or ended before {@code now}, setting the lease to {@code owner} until
+     * {@code leaseUntil}. Reads and writes the primary in one findAndModify, so two
+     * instances never claim the same VM while a lease is live.
+     *
+     * @return the claimed VM as it is after the update, or empty if none is claimable
+     */
+    Optional<VM> claimNextPending(String owner, LocalDateTime now, LocalDateTime leaseUntil);
+
+    /**
+     * Returns id, state, updatedAt, userId and the fields fleet statistics are keyed on
+     * (region, availabilityZone, instanceType, resources) for each of the given VMs.
+     */
+    List<VM> findStatesByIds(Collection<String> vmIds);
+
+    /** Ids of VMs matching the selector, in {@code _id} order, at most {@code limit}. */
+    List<String> findIdsBySelector(VMFilter selector, int limit);
+
+    /**
+     * Up to {@code limit} VMs matching the filter with {@code _id > afterId}, in {@code _id}
+     * order, loading only the fields of {@code view}.
+     */
+    <T extends VMProjection> List<T> findPage(VMFilter filter, String afterId, int limit, Class<T> view);
+
+    /**
+     * Streams every VM matching the filter in {@code _id} order straight off the Mongo
+     * cursor, loading only the fields of {@code view}. The caller must close the stream.
+     */
+    <T extends VMProjection> Stream<T> streamMatching(VMFilter filter, int batchSize, Class<T> view);
+
+    /**
+     * Up to {@code limit} VMs written after ({@code afterVersion}, {@code afterId}) and at
+     * or before {@code maxVersion}, in (version, {@code _id}) order, loading only the
+     * fields of {@code view}. A null {@code afterId} starts after every VM of {@code afterVersion}.
+     */
+    <T extends VMProjection> List<T> findChanges(long afterVersion, String afterId, long maxVersion, int limit,
+                                                 Class<T> view);
+
+    /** Count and summed resources of all VMs grouped by state, region, AZ and instanceType. */
+    List<FleetStatsGroup> aggregateFleetStats();
+
+    /**
+     * Moves every VM in {@code vmIds} that is in one of {@code expectedStates} to
+     * {@code target} with a single multi-document update, stamping them all with
+     * {@code updatedAt} and {@code version}.
+     *
+     * @return number of VMs modified
+     */
+    long updateStatesIfIn(Collection<String> vmIds, Collection<VM.VMState> expectedStates,
+                          VM.VMState target, LocalDateTime updatedAt, long version);
+
+    /**
+     * Sets state, updatedAt and version from each of {@code states} (id, state, updatedAt
+     * and version only) in one unordered bulk write. A VM whose stored updatedAt is newer is left alone, so
+     * the last writer wins and replaying the same states is harmless.
+     *
+     * @return number of VMs modified
+     */
+    long applyStates(Collection<VM> states);
+}
@@ -0,0 +1,137 @@
+package com.cloud.compute.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cloud.compute.model.FleetStatsGroup;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Conditional writes, lifecycle reads and the change feed use the primary template. Paged
+ * and streamed list queries go through {@code listMongoTemplate}, which may read from a
+ * secondary within compute.mongo.list-max-staleness.
+ */
+@RequiredArgsConstructor
+public class VMRepositoryCustomImpl implements VMRepositoryCustom {
+    private final MongoTemplate mongoTemplate;
+    @Qualifier("listMongoTemplate")
+    private final MongoTemplate listMongoTemplate;
+
+    @Override
+    public Optional<VM> updateIfInState(String vmId, Collection<VM.VMState> expectedStates, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(vmId).and("state").in(expectedStates));
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(false), VM.class));
+    }
+
+    @Override
+    public Optional<VM> claimNextPending(String owner, LocalDateTime now, LocalDateTime leaseUntil) {
+        Query query = Query.query(Criteria.where("state").is(VM.VMState.PENDING).orOperator(
+                        Criteria.where("provisioningLease.until").is(null),
+                        Criteria.where("provisioningLease.until").lt(now)))
+                .with(Sort.by("_id"));
+        VM.ProvisioningLease lease = new VM.ProvisioningLease();
+        lease.setOwner(owner);
+        lease.setUntil(leaseUntil);
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                query, new Update().set("provisioningLease", lease),
+                FindAndModifyOptions.options().returnNew(true), VM.class));
+    }
+
+    @Override
+    public List<VM> findStatesByIds(Collection<String> vmIds) {
+        Query query = Query.query(Criteria.where("_id").in(vmIds));
+        query.fields().include("state", "updatedAt", "userId", "region", "availabilityZone", "instanceType",
+                "resources");
+        return mongoTemplate.find(query, VM.class);
+    }
+
+    @Override
+    public List<String> findIdsBySelector(VMFilter selector, int limit) {
+        Query query = Query.query(VMQueries.criteriaFor(selector)).with(Sort.by("_id")).limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, VM.class).stream()
+                .map(VM::getId)
+                .toList();
+    }
+
+    @Override
+    public long updateStatesIfIn(Collection<String> vmIds, Collection<VM.VMState> expectedStates,
+                                 VM.VMState target, LocalDateTime updatedAt, long version) {
+        Query query = Query.query(Criteria.where("_id").in(vmIds).and("state").in(expectedStates));
+        Update update = new Update().set("state", target).set("updatedAt", updatedAt).set("version", version);
+        return mongoTemplate.updateMulti(query, update, VM.class).getModifiedCount();
+    }
+
+    @Override
+    public long applyStates(Collection<VM> states) {
+        if (states.isEmpty()) {
+            return 0;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VM.class);
+        for (VM vm : states) {
+            Query query = Query.query(Criteria.where("_id").is(vm.getId()).and("updatedAt").lte(vm.getUpdatedAt()));
+            bulk.updateOne(query, new Update()
+                    .set("state", vm.getState())
+                    .set("updatedAt", vm.getUpdatedAt())
+                    .set("version", vm.getVersion()));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+
+    @Override
+    public <T extends VMProjection> List<T> findPage(VMFilter filter, String afterId, int limit, Class<T> view) {
+        Criteria criteria = VMQueries.criteriaFor(filter);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        Query query = VMQueries.project(Query.query(criteria).with(Sort.by("_id")).limit(limit), view);
+        return listMongoTemplate.find(query, view, listMongoTemplate.getCollectionName(VM.class));
+    }
+
+    @Override
+    public <T extends VMProjection> Stream<T> streamMatching(VMFilter filter, int batchSize, Class<T> view) {
+        Query query = VMQueries.project(
+                Query.query(VMQueries.criteriaFor(filter)).with(Sort.by("_id")).cursorBatchSize(batchSize), view);
+        return listMongoTemplate.stream(query, view, listMongoTemplate.getCollectionName(VM.class));
+    }
+
+    @Override
+    public <T extends VMProjection> List<T> findChanges(long afterVersion, String afterId, long maxVersion, int limit,
+                                                        Class<T> view) {
+        Query query = VMQueries.project(VMQueries.changes(afterVersion, afterId, maxVersion, limit), view);
+        return mongoTemplate.find(query, view, mongoTemplate.getCollectionName(VM.class));
+    }
+
+    @Override
+    public List<FleetStatsGroup> aggregateFleetStats() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("state", "region", "availabilityZone", "instanceType")
+                        .count().as("count")
+                        .sum("resources.cpuCores").as("cpuCores")
+                        .sum("resources.memoryGB").as("memoryGB")
+                        .sum("resources.storageGB").as("storageGB")
+                        .sum("resources.networkBandwidthMbps").as("networkBandwidthMbps"),
+                Aggregation.project("count", "cpuCores", "memoryGB", "storageGB", "networkBandwidthMbps",
+                                "state", "region", "availabilityZone", "instanceType")
+                        .andExclude("_id"));
+        return mongoTemplate.aggregate(aggregation, VM.class, FleetStatsGroup.class).getMappedResults();
+    }
+}
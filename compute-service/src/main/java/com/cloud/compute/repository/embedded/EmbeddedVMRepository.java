@@ -0,0 +1,822 @@
+package com.cloud.compute.repository.embedded;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import com.cloud.compute.config.EmbeddedStoreProperties;
+import com.cloud.compute.model.FleetStatsGroup;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.model.VMSummary;
+import com.cloud.compute.repository.VMRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process {@link VMRepository} for edge deployments, CI and load tests, active under
+ * the {@code embedded} profile. Documents live in a primary map ordered by id, with
+ * secondary indexes on userId, state, region, availabilityZone, name, version, each tag and
+ * each custom metadata entry; every repository query starts from one of them and never
+ * scans the primary map unless the filter is empty. Writes are serialized by a single lock and journaled through
+ * {@link VMJournal} before they become visible; reads are lock-free.
+ *
+ * <p>Stored documents are never mutated; writes replace them and reads return copies,
+ * matching what callers get from Mongo.
+ */
+@Slf4j
+@Repository
+@Profile("embedded")
+public class EmbeddedVMRepository implements VMRepository, DisposableBean {
+    private final ConcurrentSkipListMap<String, VM> primary = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableSet<String>> byUserId = new ConcurrentHashMap<>();
+    private final Map<VM.VMState, NavigableSet<String>> byState = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<String>> byRegion = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<String>> byAvailabilityZone = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<String>> byTag = new ConcurrentHashMap<>();
+    private final Map<Map.Entry<String, String>, NavigableSet<String>> byMetadata = new ConcurrentHashMap<>();
+    private final Map<String, String> idByName = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, NavigableSet<String>> byVersion = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final VMJournal journal;
+
+    public EmbeddedVMRepository(EmbeddedStoreProperties properties) {
+        if (properties.getDataDir() == null) {
+            this.journal = null;
+            return;
+        }
+        this.journal = new VMJournal(Path.of(properties.getDataDir()), properties.isSyncOnWrite());
+        try {
+            journal.recover().values().forEach(this::store);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover embedded VM store", e);
+        }
+    }
+
+    /** Called at the start of every operation; load tests override it to simulate I/O latency. */
+    protected void beforeOperation() {
+    }
+
+    // ---- writes ------------------------------------------------------------------------
+
+    @Override
+    public <S extends VM> S insert(S entity) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            if (entity.getId() == null) {
+                entity.setId(new ObjectId().toHexString());
+            } else if (primary.containsKey(entity.getId())) {
+                throw new DuplicateKeyException("E11000 duplicate key error: _id " + entity.getId());
+            }
+            checkNameAvailable(entity);
+            write(copy(entity));
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public <S extends VM> List<S> insert(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(vm -> saved.add(insert(vm)));
+        return saved;
+    }
+
+    @Override
+    public <S extends VM> S save(S entity) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            if (entity.getId() == null) {
+                entity.setId(new ObjectId().toHexString());
+            }
+            checkNameAvailable(entity);
+            write(copy(entity));
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public <S extends VM> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(vm -> saved.add(save(vm)));
+        return saved;
+    }
+
+    @Override
+    public Optional<VM> updateIfInState(String vmId, Collection<VM.VMState> expectedStates, Update update) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            VM current = primary.get(vmId);
+            if (current == null || !expectedStates.contains(current.getState())) {
+                return Optional.empty();
+            }
+            VM updated = copy(current);
+            apply(updated, update);
+            // Values in the update stay with the caller; the stored document gets its own.
+            write(copy(updated));
+            return Optional.of(copy(current));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<VM> claimNextPending(String owner, LocalDateTime now, LocalDateTime leaseUntil) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            for (String id : ids(byState, VM.VMState.PENDING)) {
+                VM current = primary.get(id);
+                VM.ProvisioningLease held = current.getProvisioningLease();
+                if (held != null && held.getUntil() != null && !held.getUntil().isBefore(now)) {
+                    continue;
+                }
+                VM claimed = copy(current);
+                VM.ProvisioningLease lease = new VM.ProvisioningLease();
+                lease.setOwner(owner);
+                lease.setUntil(leaseUntil);
+                claimed.setProvisioningLease(lease);
+                write(claimed);
+                return Optional.of(copy(claimed));
+            }
+            return Optional.empty();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long updateStatesIfIn(Collection<String> vmIds, Collection<VM.VMState> expectedStates,
+                                 VM.VMState target, LocalDateTime updatedAt, long version) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            long modified = 0;
+            for (String vmId : vmIds) {
+                VM current = primary.get(vmId);
+                if (current != null && expectedStates.contains(current.getState())) {
+                    VM updated = copy(current);
+                    updated.setState(target);
+                    updated.setUpdatedAt(updatedAt);
+                    updated.setVersion(version);
+                    write(updated);
+                    modified++;
+                }
+            }
+            return modified;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long applyStates(Collection<VM> states) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            long modified = 0;
+            for (VM state : states) {
+                VM current = primary.get(state.getId());
+                if (current != null && (current.getUpdatedAt() == null
+                        || !current.getUpdatedAt().isAfter(state.getUpdatedAt()))) {
+                    VM updated = copy(current);
+                    updated.setState(state.getState());
+                    updated.setUpdatedAt(state.getUpdatedAt());
+                    updated.setVersion(state.getVersion());
+                    write(updated);
+                    modified++;
+                }
+            }
+            return modified;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteById(String id) {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            if (primary.containsKey(id)) {
+                if (journal != null) {
+                    journal.appendDelete(id);
+                }
+                unstore(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(VM entity) {
+        deleteById(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        ids.forEach(this::deleteById);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends VM> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        beforeOperation();
+        writeLock.lock();
+        try {
+            if (journal != null) {
+                journal.appendClear();
+            }
+            primary.clear();
+            byUserId.clear();
+            byState.clear();
+            byRegion.clear();
+            byAvailabilityZone.clear();
+            byTag.clear();
+            byMetadata.clear();
+            idByName.clear();
+            byVersion.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---- reads -------------------------------------------------------------------------
+
+    @Override
+    public Optional<VM> findById(String id) {
+        beforeOperation();
+        return Optional.ofNullable(primary.get(id)).map(EmbeddedVMRepository::copy);
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        beforeOperation();
+        return primary.containsKey(id);
+    }
+
+    @Override
+    public List<VM> findAll() {
+        beforeOperation();
+        return primary.values().stream().map(EmbeddedVMRepository::copy).toList();
+    }
+
+    @Override
+    public List<VM> findAllById(Iterable<String> ids) {
+        beforeOperation();
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(primary::get)
+                .filter(Objects::nonNull)
+                .map(EmbeddedVMRepository::copy)
+                .toList();
+    }
+
+    @Override
+    public long count() {
+        beforeOperation();
+        return primary.size();
+    }
+
+    @Override
+    public List<VM> findByUserId(String userId) {
+        return userId == null ? List.of() : find(VMFilter.byUserId(userId));
+    }
+
+    @Override
+    public List<VM> findByState(VM.VMState state) {
+        return state == null ? List.of() : find(VMFilter.byState(state));
+    }
+
+    @Override
+    public Optional<VM> findByName(String name) {
+        beforeOperation();
+        return Optional.ofNullable(name)
+                .map(idByName::get)
+                .map(primary::get)
+                .map(EmbeddedVMRepository::copy);
+    }
+
+    @Override
+    public List<VM> findByRegion(String region) {
+        return region == null ? List.of() : find(VMFilter.byRegion(region));
+    }
+
+    @Override
+    public List<VM> findByAvailabilityZone(String availabilityZone) {
+        return availabilityZone == null ? List.of() : find(VMFilter.byAvailabilityZone(availabilityZone));
+    }
+
+    @Override
+    public List<VM> findByRegionAndAvailabilityZone(String region, String availabilityZone) {
+        if (region == null || availabilityZone == null) {
+            return List.of();
+        }
+        VMFilter filter = VMFilter.byRegion(region);
+        filter.setAvailabilityZone(availabilityZone);
+        return find(filter);
+    }
+
+    @Override
+    public List<VM> findByUserIdAndState(String userId, VM.VMState state) {
+        if (userId == null || state == null) {
+            return List.of();
+        }
+        VMFilter filter = VMFilter.byUserId(userId);
+        filter.setState(state);
+        return find(filter);
+    }
+
+    @Override
+    public boolean existsByName(String name) {
+        beforeOperation();
+        return name != null && idByName.containsKey(name);
+    }
+
+    @Override
+    public List<VM> findStatesByIds(Collection<String> vmIds) {
+        return findAllById(vmIds);
+    }
+
+    @Override
+    public List<String> findIdsBySelector(VMFilter selector, int limit) {
+        beforeOperation();
+        return select(selector, null).map(VM::getId).limit(limit).toList();
+    }
+
+    @Override
+    public <T extends VMProjection> List<T> findPage(VMFilter filter, String afterId, int limit, Class<T> view) {
+        beforeOperation();
+        return select(filter, afterId).limit(limit).map(vm -> project(vm, view)).toList();
+    }
+
+    @Override
+    public <T extends VMProjection> Stream<T> streamMatching(VMFilter filter, int batchSize, Class<T> view) {
+        beforeOperation();
+        return select(filter, null).map(vm -> project(vm, view));
+    }
+
+    @Override
+    public <T extends VMProjection> List<T> findChanges(long afterVersion, String afterId, long maxVersion, int limit,
+                                                        Class<T> view) {
+        beforeOperation();
+        if (afterVersion > maxVersion) {
+            return List.of();
+        }
+        List<T> changes = new ArrayList<>();
+        // The first version is only included when resuming inside it, from just after afterId.
+        for (Map.Entry<Long, NavigableSet<String>> entry
+                : byVersion.subMap(afterVersion, afterId != null, maxVersion, true).entrySet()) {
+            NavigableSet<String> ids = entry.getKey() == afterVersion
+                    ? entry.getValue().tailSet(afterId, false)
+                    : entry.getValue();
+            for (String id : ids) {
+                VM vm = primary.get(id);
+                if (vm != null && vm.getVersion() == entry.getKey()) {
+                    changes.add(project(vm, view));
+                    if (changes.size() == limit) {
+                        return changes;
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public List<FleetStatsGroup> aggregateFleetStats() {
+        beforeOperation();
+        Map<List<Object>, FleetStatsGroup> groups = new HashMap<>();
+        for (VM vm : primary.values()) {
+            List<Object> key = Arrays.asList(
+                    vm.getState(), vm.getRegion(), vm.getAvailabilityZone(), vm.getInstanceType());
+            FleetStatsGroup group = groups.computeIfAbsent(key, k -> {
+                FleetStatsGroup created = new FleetStatsGroup();
+                created.setState(vm.getState());
+                created.setRegion(vm.getRegion());
+                created.setAvailabilityZone(vm.getAvailabilityZone());
+                created.setInstanceType(vm.getInstanceType());
+                return created;
+            });
+            group.setCount(group.getCount() + 1);
+            if (vm.getResources() != null) {
+                group.setCpuCores(group.getCpuCores() + vm.getResources().getCpuCores());
+                group.setMemoryGB(group.getMemoryGB() + vm.getResources().getMemoryGB());
+                group.setStorageGB(group.getStorageGB() + vm.getResources().getStorageGB());
+                group.setNetworkBandwidthMbps(
+                        group.getNetworkBandwidthMbps() + vm.getResources().getNetworkBandwidthMbps());
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    // ---- persistence -------------------------------------------------------------------
+
+    /** Folds the journal into a new snapshot so restart cost tracks live data, not history. */
+    @Scheduled(fixedDelayString = "${compute.embedded.snapshot-interval:PT5M}",
+               initialDelayString = "${compute.embedded.snapshot-interval:PT5M}")
+    public void snapshot() {
+        if (journal == null) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            List<VM> vms;
+            long seq;
+            writeLock.lock();
+            try {
+                seq = journal.rotate();
+                vms = new ArrayList<>(primary.values());
+            } finally {
+                writeLock.unlock();
+            }
+            journal.writeSnapshot(vms, seq);
+        } catch (IOException e) {
+            log.error("Failed to write embedded VM snapshot: {}", e.getMessage(), e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (journal != null) {
+            snapshot();
+            journal.close();
+        }
+    }
+
+    // ---- internals ---------------------------------------------------------------------
+
+    private List<VM> find(VMFilter filter) {
+        beforeOperation();
+        return select(filter, null).map(EmbeddedVMRepository::copy).toList();
+    }
+
+    /**
+     * Plans a query: walks the id set of the most selective index the filter touches
+     * (userId, then a metadata entry, a tag, AZ, region, state, and last the merged tag
+     * sets of {@code anyTags}), resumes after {@code afterId} by seeking in the ordered
+     * set, and checks the remaining predicates on each document.
+     */
+    private Stream<VM> select(VMFilter filter, String afterId) {
+        NavigableSet<String> ids;
+        if (filter.getUserId() != null) {
+            ids = ids(byUserId, filter.getUserId());
+        } else if (filter.getMetadata() != null && !filter.getMetadata().isEmpty()) {
+            ids = ids(byMetadata, filter.getMetadata().entrySet().iterator().next());
+        } else if (filter.getTags() != null && !filter.getTags().isEmpty()) {
+            ids = ids(byTag, filter.getTags().iterator().next());
+        } else if (filter.getAvailabilityZone() != null) {
+            ids = ids(byAvailabilityZone, filter.getAvailabilityZone());
+        } else if (filter.getRegion() != null) {
+            ids = ids(byRegion, filter.getRegion());
+        } else if (filter.getState() != null) {
+            ids = ids(byState, filter.getState());
+        } else if (filter.getAnyTags() != null && !filter.getAnyTags().isEmpty()) {
+            ids = null;
+        } else {
+            ids = primary.navigableKeySet();
+        }
+        Stream<String> candidates = ids != null
+                ? after(ids, afterId).stream()
+                : union(filter.getAnyTags().stream().map(tag -> after(ids(byTag, tag), afterId)).toList());
+        Predicate<VM> predicate = matches(filter);
+        return candidates
+                .map(primary::get)
+                .filter(Objects::nonNull)
+                .filter(predicate);
+    }
+
+    private static <K> NavigableSet<String> ids(Map<K, NavigableSet<String>> index, K key) {
+        return index.getOrDefault(key, Collections.emptyNavigableSet());
+    }
+
+    private static NavigableSet<String> after(NavigableSet<String> ids, String afterId) {
+        return afterId == null ? ids : ids.tailSet(afterId, false);
+    }
+
+    /**
+     * Merges ordered id sets lazily and without duplicates, so a page of an {@code anyTags}
+     * query reads about a page from each set instead of materializing the whole union.
+     */
+    private static Stream<String> union(List<NavigableSet<String>> sets) {
+        PriorityQueue<Map.Entry<String, Iterator<String>>> heads = new PriorityQueue<>(Map.Entry.comparingByKey());
+        for (NavigableSet<String> set : sets) {
+            Iterator<String> iterator = set.iterator();
+            if (iterator.hasNext()) {
+                heads.add(Map.entry(iterator.next(), iterator));
+            }
+        }
+        Iterator<String> merged = new Iterator<>() {
+            private String last;
+
+            @Override
+            public boolean hasNext() {
+                while (!heads.isEmpty() && heads.peek().getKey().equals(last)) {
+                    advance();
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = heads.peek().getKey();
+                advance();
+                return last;
+            }
+
+            private void advance() {
+                Iterator<String> iterator = heads.poll().getValue();
+                if (iterator.hasNext()) {
+                    heads.add(Map.entry(iterator.next(), iterator));
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private static Predicate<VM> matches(VMFilter filter) {
+        return vm -> (filter.getUserId() == null || filter.getUserId().equals(vm.getUserId()))
+                && (filter.getState() == null || filter.getState() == vm.getState())
+                && (filter.getRegion() == null || filter.getRegion().equals(vm.getRegion()))
+                && (filter.getAvailabilityZone() == null
+                        || filter.getAvailabilityZone().equals(vm.getAvailabilityZone()))
+                && (filter.getTags() == null || tagsOf(vm).containsAll(filter.getTags()))
+                && (filter.getAnyTags() == null || filter.getAnyTags().isEmpty()
+                        || filter.getAnyTags().stream().anyMatch(tagsOf(vm)::contains))
+                && (filter.getMetadata() == null || customMetadataOf(vm).entrySet()
+                        .containsAll(filter.getMetadata().entrySet()));
+    }
+
+    private static Collection<String> tagsOf(VM vm) {
+        return vm.getTags() == null ? List.of() : vm.getTags();
+    }
+
+    private static Map<String, String> customMetadataOf(VM vm) {
+        return vm.getMetadata() == null || vm.getMetadata().getCustomMetadata() == null
+                ? Map.of() : vm.getMetadata().getCustomMetadata();
+    }
+
+    private void checkNameAvailable(VM vm) {
+        if (vm.getName() == null) {
+            return;
+        }
+        String owner = idByName.get(vm.getName());
+        if (owner != null && !owner.equals(vm.getId())) {
+            throw new DuplicateKeyException("E11000 duplicate key error: name " + vm.getName());
+        }
+    }
+
+    /** Journals and stores {@code vm}; caller holds the write lock. */
+    private void write(VM vm) {
+        if (journal != null) {
+            journal.appendPut(vm);
+        }
+        store(vm);
+    }
+
+    private void store(VM vm) {
+        VM previous = primary.put(vm.getId(), vm);
+        if (previous != null) {
+            unindex(previous);
+        }
+        index(vm);
+    }
+
+    private void unstore(String id) {
+        VM previous = primary.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    private void index(VM vm) {
+        add(byUserId, vm.getUserId(), vm.getId());
+        add(byState, vm.getState(), vm.getId());
+        add(byRegion, vm.getRegion(), vm.getId());
+        add(byAvailabilityZone, vm.getAvailabilityZone(), vm.getId());
+        add(byVersion, vm.getVersion(), vm.getId());
+        tagsOf(vm).forEach(tag -> add(byTag, tag, vm.getId()));
+        metadataKeys(vm).forEach(entry -> add(byMetadata, entry, vm.getId()));
+        if (vm.getName() != null) {
+            idByName.put(vm.getName(), vm.getId());
+        }
+    }
+
+    private void unindex(VM vm) {
+        remove(byUserId, vm.getUserId(), vm.getId());
+        remove(byState, vm.getState(), vm.getId());
+        remove(byRegion, vm.getRegion(), vm.getId());
+        remove(byAvailabilityZone, vm.getAvailabilityZone(), vm.getId());
+        remove(byVersion, vm.getVersion(), vm.getId());
+        tagsOf(vm).forEach(tag -> remove(byTag, tag, vm.getId()));
+        metadataKeys(vm).forEach(entry -> remove(byMetadata, entry, vm.getId()));
+        if (vm.getName() != null) {
+            idByName.remove(vm.getName(), vm.getId());
+        }
+    }
+
+    /** Index keys for the VM's custom metadata; null keys and values are not searchable. */
+    private static Set<Map.Entry<String, String>> metadataKeys(VM vm) {
+        Set<Map.Entry<String, String>> keys = new HashSet<>();
+        customMetadataOf(vm).forEach((key, value) -> {
+            if (key != null && value != null) {
+                keys.add(Map.entry(key, value));
+            }
+        });
+        return keys;
+    }
+
+    private static <K> void add(Map<K, NavigableSet<String>> index, K key, String id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    private static <K> void remove(Map<K, NavigableSet<String>> index, K key, String id) {
+        if (key != null) {
+            // Drop empty sets so memory tracks live keys, not every userId ever seen.
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends VMProjection> T project(VM vm, Class<T> view) {
+        if (view != VMSummary.class) {
+            return (T) copy(vm);
+        }
+        VMSummary summary = new VMSummary();
+        summary.setId(vm.getId());
+        summary.setName(vm.getName());
+        summary.setState(vm.getState());
+        summary.setRegion(vm.getRegion());
+        summary.setAvailabilityZone(vm.getAvailabilityZone());
+        summary.setInstanceType(vm.getInstanceType());
+        summary.setUpdatedAt(vm.getUpdatedAt());
+        summary.setVersion(vm.getVersion());
+        return (T) summary;
+    }
+
+    /**
+     * Applies the {@code $set} and {@code $unset} operations of {@code update}, on top-level
+     * or dotted nested properties, the way Mongo applies them to the stored document.
+     */
+    private static void apply(VM vm, Update update) {
+        Document operations = update.getUpdateObject();
+        for (String operator : operations.keySet()) {
+            if (!"$set".equals(operator) && !"$unset".equals(operator)) {
+                throw new InvalidDataAccessApiUsageException("The embedded store does not support " + operator);
+            }
+        }
+        BeanWrapper target = PropertyAccessorFactory.forBeanPropertyAccess(vm);
+        target.setAutoGrowNestedPaths(true);
+        Document set = operations.get("$set", Document.class);
+        if (set != null) {
+            set.forEach((field, value) -> target.setPropertyValue(propertyOf(field), value));
+        }
+        Document unset = operations.get("$unset", Document.class);
+        if (unset != null) {
+            unset.keySet().forEach(field -> target.setPropertyValue(propertyOf(field), null));
+        }
+    }
+
+    private static String propertyOf(String field) {
+        if ("_id".equals(field) || "id".equals(field)) {
+            throw new InvalidDataAccessApiUsageException("The _id of a VM cannot be updated");
+        }
+        return field;
+    }
+
+    /** Deep copy: nested specs, lists and metadata are never shared with a stored document. */
+    private static VM copy(VM source) {
+        VM vm = new VM();
+        vm.setId(source.getId());
+        vm.setName(source.getName());
+        vm.setImageId(source.getImageId());
+        vm.setInstanceType(source.getInstanceType());
+        vm.setState(source.getState());
+        vm.setResources(copy(source.getResources()));
+        vm.setNetworkConfig(copy(source.getNetworkConfig()));
+        vm.setSecurityGroups(copy(source.getSecurityGroups()));
+        vm.setUserId(source.getUserId());
+        vm.setCreatedAt(source.getCreatedAt());
+        vm.setUpdatedAt(source.getUpdatedAt());
+        vm.setVersion(source.getVersion());
+        vm.setRegion(source.getRegion());
+        vm.setAvailabilityZone(source.getAvailabilityZone());
+        vm.setTags(copy(source.getTags()));
+        vm.setMetadata(copy(source.getMetadata()));
+        vm.setProvisioningLease(copy(source.getProvisioningLease()));
+        return vm;
+    }
+
+    private static VM.ProvisioningLease copy(VM.ProvisioningLease source) {
+        if (source == null) {
+            return null;
+        }
+        VM.ProvisioningLease lease = new VM.ProvisioningLease();
+        lease.setOwner(source.getOwner());
+        lease.setUntil(source.getUntil());
+        return lease;
+    }
+
+    private static VM.ResourceSpec copy(VM.ResourceSpec source) {
+        if (source == null) {
+            return null;
+        }
+        VM.ResourceSpec resources = new VM.ResourceSpec();
+        resources.setCpuCores(source.getCpuCores());
+        resources.setMemoryGB(source.getMemoryGB());
+        resources.setStorageGB(source.getStorageGB());
+        resources.setNetworkBandwidthMbps(source.getNetworkBandwidthMbps());
+        return resources;
+    }
+
+    private static VM.NetworkConfig copy(VM.NetworkConfig source) {
+        if (source == null) {
+            return null;
+        }
+        VM.NetworkConfig networkConfig = new VM.NetworkConfig();
+        networkConfig.setVpcId(source.getVpcId());
+        networkConfig.setSubnetId(source.getSubnetId());
+        networkConfig.setPrivateIp(source.getPrivateIp());
+        networkConfig.setPublicIp(source.getPublicIp());
+        networkConfig.setSecurityGroupIds(copy(source.getSecurityGroupIds()));
+        return networkConfig;
+    }
+
+    private static VM.VMMetadata copy(VM.VMMetadata source) {
+        if (source == null) {
+            return null;
+        }
+        VM.VMMetadata metadata = new VM.VMMetadata();
+        metadata.setHostname(source.getHostname());
+        metadata.setSshKey(source.getSshKey());
+        metadata.setUserData(source.getUserData());
+        metadata.setCustomMetadata(source.getCustomMetadata() == null
+                ? null : new LinkedHashMap<>(source.getCustomMetadata()));
+        return metadata;
+    }
+
+    private static List<String> copy(List<String> source) {
+        return source == null ? null : new ArrayList<>(source);
+    }
+}
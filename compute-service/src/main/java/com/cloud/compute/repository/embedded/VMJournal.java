@@ -0,0 +1,279 @@
+package com.cloud.compute.repository.embedded;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.cloud.compute.model.VM;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durability for {@link EmbeddedVMRepository}: an append-only journal of JSON lines plus
+ * a binary snapshot, written and read sequentially so its size is bounded only by disk.
+ * Every snapshot starts a new journal segment ({@code journal-<firstSeq>.log}), and
+ * segments fully covered by the snapshot are deleted, so recovery reads one snapshot
+ * plus at most the writes since it. Appends are flushed to the OS on every write and
+ * fsynced only when {@code syncOnWrite} is set or a segment is closed.
+ *
+ * <p>Snapshot layout: {@code MAGIC:int, lastSeq:long, count:int}, then {@code count}
+ * entries of {@code length:int, json:byte[length]}.
+ */
+@Slf4j
+class VMJournal implements Closeable {
+    private static final int MAGIC = 0x564D5331; // "VMS1"
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    enum Op {
+        PUT,
+        DELETE,
+        CLEAR
+    }
+
+    record Entry(long seq, Op op, String id, VM vm) {
+    }
+
+    private final Path dir;
+    private final boolean syncOnWrite;
+    private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+    private long seq;
+    private FileOutputStream segment;
+    private OutputStream out;
+
+    VMJournal(Path dir, boolean syncOnWrite) {
+        this.dir = dir;
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    /** Loads the snapshot, replays newer journal entries and opens a fresh segment. */
+    Map<String, VM> recover() throws IOException {
+        Files.createDirectories(dir);
+        Map<String, VM> vms = new LinkedHashMap<>();
+        long snapshotSeq = readSnapshot(vms);
+        seq = snapshotSeq;
+        int replayed = 0;
+        for (Path path : segments()) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry;
+                    try {
+                        entry = mapper.readValue(line, Entry.class);
+                    } catch (IOException e) {
+                        // A torn final line from a crash mid-append; everything before it is intact.
+                        log.warn("Ignoring unreadable journal entry in {}", path.getFileName());
+                        break;
+                    }
+                    if (entry.seq() <= snapshotSeq) {
+                        continue;
+                    }
+                    apply(vms, entry);
+                    seq = entry.seq();
+                    replayed++;
+                }
+            }
+        }
+        if (!segments().isEmpty()) {
+            // Fold the replayed tail into a fresh snapshot so the next start only reads the
+            // snapshot, and so a torn segment is never appended to.
+            writeSnapshot(vms.values(), seq);
+            for (Path path : segments()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        openSegment();
+        log.info("Recovered {} VMs from {} (snapshot seq {}, {} journal entries replayed)",
+                vms.size(), dir, snapshotSeq, replayed);
+        return vms;
+    }
+
+    void appendPut(VM vm) {
+        append(new Entry(++seq, Op.PUT, vm.getId(), vm));
+    }
+
+    void appendDelete(String id) {
+        append(new Entry(++seq, Op.DELETE, id, null));
+    }
+
+    void appendClear() {
+        append(new Entry(++seq, Op.CLEAR, null, null));
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Must be called under the
+     * repository write lock together with capturing the documents to snapshot.
+     *
+     * @return the sequence number the snapshot will cover
+     */
+    long rotate() {
+        try {
+            closeSegment();
+            openSegment();
+            return seq;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate journal", e);
+        }
+    }
+
+    /** Writes {@code vms} as the snapshot covering {@code lastSeq}, then drops older segments. */
+    void writeSnapshot(Collection<VM> vms, long lastSeq) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(vms.size());
+        long size = Integer.BYTES + Long.BYTES + Integer.BYTES;
+        for (VM vm : vms) {
+            byte[] bytes = mapper.writeValueAsBytes(vm);
+            encoded.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+
+        long usable = Files.getFileStore(dir).getUsableSpace();
+        if (size > usable) {
+            throw new IOException("Snapshot of " + size + " bytes does not fit in the " + usable
+                    + " usable bytes under " + dir);
+        }
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        Files.deleteIfExists(tmp);
+        // Streamed through a reused buffer: a single mapping is capped at 2GB and the snapshot is not.
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            buffer.putInt(MAGIC).putLong(lastSeq).putInt(encoded.size());
+            for (byte[] bytes : encoded) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putInt(bytes.length);
+                for (int offset = 0; offset < bytes.length; ) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    int length = Math.min(buffer.remaining(), bytes.length - offset);
+                    buffer.put(bytes, offset, length);
+                    offset += length;
+                }
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        for (Path path : segments()) {
+            if (firstSeq(path) <= lastSeq) {
+                Files.deleteIfExists(path);
+            }
+        }
+        log.info("Wrote snapshot of {} VMs at seq {}", encoded.size(), lastSeq);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private long readSnapshot(Map<String, VM> vms) throws IOException {
+        Path path = dir.resolve(SNAPSHOT);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), WRITE_BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a VM snapshot: " + path);
+            }
+            long lastSeq = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                VM vm = mapper.readValue(bytes, VM.class);
+                vms.put(vm.getId(), vm);
+            }
+            return lastSeq;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void append(Entry entry) {
+        try {
+            out.write(mapper.writeValueAsBytes(entry));
+            out.write('\n');
+            out.flush();
+            if (syncOnWrite) {
+                segment.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to journal", e);
+        }
+    }
+
+    private static void apply(Map<String, VM> vms, Entry entry) {
+        switch (entry.op()) {
+            case PUT -> vms.put(entry.id(), entry.vm());
+            case DELETE -> vms.remove(entry.id());
+            case CLEAR -> vms.clear();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path path = dir.resolve(SEGMENT_PREFIX + (seq + 1) + SEGMENT_SUFFIX);
+        segment = new FileOutputStream(path.toFile(), true);
+        out = new BufferedOutputStream(segment, 64 * 1024);
+    }
+
+    private void closeSegment() throws IOException {
+        if (out != null) {
+            out.flush();
+            segment.getFD().sync();
+            out.close();
+            out = null;
+            segment = null;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(VMJournal::firstSeq))
+                    .toList();
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
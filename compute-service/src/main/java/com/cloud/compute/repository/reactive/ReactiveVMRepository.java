@@ -0,0 +1,14 @@
+package com.cloud.compute.repository.reactive;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.cloud.compute.model.VM;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface ReactiveVMRepository extends ReactiveMongoRepository<VM, String>, ReactiveVMRepositoryCustom {
+    Mono<VM> findByName(String name);
+    Mono<Boolean> existsByName(String name);
+}
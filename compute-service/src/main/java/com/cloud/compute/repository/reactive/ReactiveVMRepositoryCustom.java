@@ -0,0 +1,43 @@
+package com.cloud.compute.repository.reactive;
+
+import java.util.Collection;
+
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Reactive counterparts of the {@code VMRepositoryCustom} queries the request path uses. */
+public interface ReactiveVMRepositoryCustom {
+    /**
+     * Applies {@code update} only if the VM is in one of {@code expectedStates}.
+     *
+     * @return the document as it was before the update, or empty if the VM is missing
+     *         or in another state
+     */
+    Mono<VM> updateIfInState(String vmId, Collection<VM.VMState> expectedStates, Update update);
+
+    /**
+     * Up to {@code limit} VMs matching the filter with {@code _id > afterId}, in {@code _id}
+     * order, loading only the fields of {@code view}.
+     */
+    <T extends VMProjection> Flux<T> findPage(VMFilter filter, String afterId, int limit, Class<T> view);
+
+    /**
+     * All VMs matching the filter in {@code _id} order. The driver fetches batches of
+     * {@code batchSize} as subscribers request more, so a slow client slows the cursor
+     * instead of buffering the result.
+     */
+    <T extends VMProjection> Flux<T> findMatching(VMFilter filter, int batchSize, Class<T> view);
+
+    /**
+     * Up to {@code limit} VMs written after ({@code afterVersion}, {@code afterId}) and at
+     * or before {@code maxVersion}, in (version, {@code _id}) order.
+     */
+    <T extends VMProjection> Flux<T> findChanges(long afterVersion, String afterId, long maxVersion, int limit,
+                                                 Class<T> view);
+}
@@ -0,0 +1,59 @@
+package com.cloud.compute.repository.reactive;
+
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.repository.VMQueries;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Reactive twin of {@code VMRepositoryCustomImpl}, with the same primary and list template split. */
+@RequiredArgsConstructor
+public class ReactiveVMRepositoryCustomImpl implements ReactiveVMRepositoryCustom {
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    @Qualifier("listReactiveMongoTemplate")
+    private final ReactiveMongoTemplate listMongoTemplate;
+
+    @Override
+    public Mono<VM> updateIfInState(String vmId, Collection<VM.VMState> expectedStates, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(vmId).and("state").in(expectedStates));
+        return reactiveMongoTemplate.findAndModify(
+                query, update, FindAndModifyOptions.options().returnNew(false), VM.class);
+    }
+
+    @Override
+    public <T extends VMProjection> Flux<T> findPage(VMFilter filter, String afterId, int limit, Class<T> view) {
+        Criteria criteria = VMQueries.criteriaFor(filter);
+        if (afterId != null) {
+            criteria.and("_id").gt(afterId);
+        }
+        Query query = VMQueries.project(Query.query(criteria).with(Sort.by("_id")).limit(limit), view);
+        return listMongoTemplate.find(query, view, listMongoTemplate.getCollectionName(VM.class));
+    }
+
+    @Override
+    public <T extends VMProjection> Flux<T> findMatching(VMFilter filter, int batchSize, Class<T> view) {
+        Query query = VMQueries.project(
+                Query.query(VMQueries.criteriaFor(filter)).with(Sort.by("_id")).cursorBatchSize(batchSize), view);
+        return listMongoTemplate.find(query, view, listMongoTemplate.getCollectionName(VM.class));
+    }
+
+    @Override
+    public <T extends VMProjection> Flux<T> findChanges(long afterVersion, String afterId, long maxVersion, int limit,
+                                                        Class<T> view) {
+        Query query = VMQueries.project(VMQueries.changes(afterVersion, afterId, maxVersion, limit), view);
+        return reactiveMongoTemplate.find(query, view, reactiveMongoTemplate.getCollectionName(VM.class));
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloud.compute.service;
+
+import java.util.List;
+
+import com.cloud.compute.model.VM;
+
+/**
+ * Boundary to whatever actually creates machines. The provisioning pipeline hands it
+ * PENDING VMs in batches and commits the returned outcomes back to Mongo in bulk.
+ */
+public interface HypervisorDriver {
+
+    /**
+     * Provisions the given VMs, returning one result per VM. An exception fails the whole
+     * batch.
+     */
+    List<Result> provision(List<VM> vms);
+
+    record Result(String vmId, boolean provisioned, String error) {
+        public static Result provisioned(String vmId) {
+            return new Result(vmId, true, null);
+        }
+
+        public static Result failed(String vmId, String error) {
+            return new Result(vmId, false, error);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.cloud.compute.service;
+
+import java.util.List;
+
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Non-blocking counterpart of {@link VMService}, active under the "reactive" profile. */
+public interface ReactiveVMService {
+    Mono<VM> createVM(VM vm, String idempotencyKey);
+    Mono<VM> startVM(String vmId);
+    Mono<VM> stopVM(String vmId);
+    Mono<VM> terminateVM(String vmId);
+    Mono<VM> modifyVM(String vmId, VM.VMState newState);
+    Mono<VM> updateResources(String vmId, VM.ResourceSpec newResources);
+    Mono<VM> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig);
+
+    /**
+     * VM ids a bulk request targets; errors with {@code InvalidRequestException} for a
+     * malformed request or a selector matching more than max-targets.
+     */
+    Mono<List<String>> resolveBulkTargets(BulkRequest request);
+
+    /** Emits each chunk's {@code BulkOutcome}s as they commit, then the {@code BulkSummary}. */
+    Flux<Object> bulkTransition(BulkAction action, List<String> vmIds);
+
+    Mono<VM> getVM(String vmId);
+    <T extends VMProjection> Mono<CursorPage<T>> getVMs(VMFilter filter, String cursor, Integer limit, Class<T> view);
+    <T extends VMProjection> Flux<T> streamVMs(VMFilter filter, Class<T> view);
+    <T extends VMProjection> Mono<ChangePage<T>> getChanges(String since, Integer limit, Class<T> view);
+    Mono<FleetStats> getFleetStats(VM.VMState state, String region, String availabilityZone, String instanceType);
+
+    Mono<Boolean> isVMAvailable(String vmId);
+}
@@ -0,0 +1,27 @@
+package com.cloud.compute.service;
+
+/**
+ * The tenant (userId) of the request being handled on this thread, set by the web layer
+ * so lifecycle tasks can be queued per tenant without threading it through every call.
+ */
+public final class TenantContext {
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String userId = CURRENT.get();
+        return userId != null ? userId : ANONYMOUS;
+    }
+
+    public static void set(String userId) {
+        CURRENT.set(userId);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
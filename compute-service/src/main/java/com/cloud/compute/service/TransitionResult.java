@@ -0,0 +1,55 @@
+package com.cloud.compute.service;
+
+import com.cloud.compute.exception.IllegalStateTransitionException;
+import com.cloud.compute.exception.VMNotFoundException;
+import com.cloud.compute.model.VM;
+
+/**
+ * Outcome of a conditional state update. {@code vm} is the updated document when
+ * {@code status} is APPLIED; {@code currentState} is the state that blocked the
+ * update when {@code status} is ILLEGAL.
+ */
+public record TransitionResult(String vmId, Status status, VM vm, VM.VMState currentState) {
+
+    public enum Status {
+        APPLIED,
+        ILLEGAL,
+        NOT_FOUND
+    }
+
+    public static TransitionResult applied(VM vm) {
+        return new TransitionResult(vm.getId(), Status.APPLIED, vm, vm.getState());
+    }
+
+    public static TransitionResult illegal(String vmId, VM.VMState currentState) {
+        return new TransitionResult(vmId, Status.ILLEGAL, null, currentState);
+    }
+
+    public static TransitionResult notFound(String vmId) {
+        return new TransitionResult(vmId, Status.NOT_FOUND, null, null);
+    }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    /** The service-level result, with a miss as a failed result rather than a throw. */
+    public VMResult toResult(String illegalMessage) {
+        return switch (status) {
+            case APPLIED -> VMResult.ok(vm);
+            case ILLEGAL -> VMResult.failed(new IllegalStateTransitionException(vmId, currentState, illegalMessage));
+            case NOT_FOUND -> VMResult.failed(new VMNotFoundException(vmId));
+        };
+    }
+
+    public VM orElseThrow(String illegalMessage) {
+        switch (status) {
+            case APPLIED:
+                return vm;
+            case ILLEGAL:
+                throw new IllegalStateTransitionException(vmId, currentState, illegalMessage);
+            default:
+                throw new VMNotFoundException(vmId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.cloud.compute.service;
+
+import com.cloud.compute.exception.VMException;
+import com.cloud.compute.model.VM;
+
+/**
+ * Outcome of a {@link VMService} operation: the VM, or the expected failure that stopped
+ * it (not found, illegal state, invalid input, conflict, shed load). Such failures are
+ * stackless and travel as values; only faults complete the future exceptionally.
+ */
+public record VMResult(VM vm, VMException error) {
+
+    public static VMResult ok(VM vm) {
+        return new VMResult(vm, null);
+    }
+
+    public static VMResult failed(VMException error) {
+        return new VMResult(null, error);
+    }
+
+    public boolean isOk() {
+        return error == null;
+    }
+
+    public VM orElseThrow() {
+        if (error != null) {
+            throw error;
+        }
+        return vm;
+    }
+}
@@ -3,23 +3,46 @@ package com.cloud.compute.service;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkOutcome;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.BulkSummary;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
 import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
 
+/**
+ * Blocking-stack service API. Mutations complete with a {@link VMResult}; expected
+ * failures are carried in it and only faults complete the future exceptionally.
+ */
 public interface VMService {
-    CompletableFuture<VM> createVM(VM vm);
-    CompletableFuture<VM> startVM(String vmId);
-    CompletableFuture<VM> stopVM(String vmId);
-    CompletableFuture<VM> terminateVM(String vmId);
-    CompletableFuture<VM> modifyVM(String vmId, VM.VMState newState);
-    CompletableFuture<VM> updateResources(String vmId, VM.ResourceSpec newResources);
-    CompletableFuture<VM> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig);
+    CompletableFuture<VMResult> createVM(VM vm);
+    CompletableFuture<VMResult> createVM(VM vm, String idempotencyKey);
+    CompletableFuture<VMResult> startVM(String vmId);
+    CompletableFuture<VMResult> stopVM(String vmId);
+    CompletableFuture<VMResult> terminateVM(String vmId);
+    CompletableFuture<VMResult> modifyVM(String vmId, VM.VMState newState);
+    CompletableFuture<VMResult> updateResources(String vmId, VM.ResourceSpec newResources);
+    CompletableFuture<VMResult> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig);
+    /**
+     * VM ids a bulk request targets. Throws {@code InvalidRequestException} at once for a
+     * malformed request; completes with one when a selector matches more than max-targets.
+     */
+    CompletableFuture<List<String>> resolveBulkTargets(BulkRequest request);
+    CompletableFuture<BulkSummary> bulkTransition(BulkAction action, List<String> vmIds,
+                                                  Consumer<List<BulkOutcome>> progress);
     
     Optional<VM> getVM(String vmId);
-    List<VM> getVMsByUserId(String userId);
-    List<VM> getVMsByState(VM.VMState state);
-    List<VM> getVMsByRegion(String region);
-    List<VM> getVMsByAvailabilityZone(String availabilityZone);
+    <T extends VMProjection> CursorPage<T> getVMs(VMFilter filter, String cursor, Integer limit, Class<T> view);
+    <T extends VMProjection> Stream<T> streamVMs(VMFilter filter, Class<T> view);
+    <T extends VMProjection> ChangePage<T> getChanges(String since, Integer limit, Class<T> view);
+    FleetStats getFleetStats(VM.VMState state, String region, String availabilityZone, String instanceType);
     
     boolean existsVM(String vmId);
     boolean isVMAvailable(String vmId);
@@ -0,0 +1,203 @@
+package com.cloud.compute.service.impl;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.ConcurrencyLimitProperties;
+import com.cloud.compute.exception.InfrastructureFailure;
+import com.cloud.compute.exception.ServiceOverloadedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Admission control for service operations with a limit that follows Mongo latency.
+ * Each Mongo call reports its latency; the limit is scaled by the ratio of the long-run
+ * average to the recent latency (a gradient: queueing in Mongo shows up as latency
+ * before it shows up as errors), plus a small headroom so it can probe upwards, and cut
+ * by {@code backoff-ratio} on infrastructure failures. Business outcomes such as an
+ * illegal state transition are ordinary samples.
+ *
+ * <p>Operations are admitted without waiting while in-flight work is below their class's
+ * share of the limit, so under pressure SHEDDABLE work is refused first, then NORMAL,
+ * and CRITICAL work (reads, terminations) last.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Priority {
+        CRITICAL,
+        NORMAL,
+        SHEDDABLE;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter[] shed = new Counter[Priority.values().length];
+    /** Shared: shedding happens in bursts, and the exception is stackless. */
+    private final ServiceOverloadedException overloaded;
+    // Guarded by this.
+    private double limit;
+    private double longRttNanos;
+    private double shortRttNanos;
+    private volatile int currentLimit;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.overloaded = new ServiceOverloadedException(properties.getRetryAfter());
+        this.limit = properties.getInitialLimit();
+        this.currentLimit = properties.getInitialLimit();
+        for (Priority priority : Priority.values()) {
+            shed[priority.ordinal()] = Counter.builder("compute.concurrency.shed")
+                    .description("Operations refused by the adaptive concurrency limit")
+                    .tag("priority", priority.tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("compute.concurrency.limit", this, limiter -> limiter.currentLimit)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("compute.concurrency.in.flight", inFlight, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("compute.concurrency.rtt.long", this, limiter -> limiter.longRtt() / 1_000_000.0)
+                .description("Long-run average Mongo call latency in milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits one operation of the given class; the caller must {@link Permit#release()} it.
+     *
+     * @throws ServiceOverloadedException if in-flight work already uses the class's share
+     */
+    public Permit acquire(Priority priority) {
+        if (!properties.isEnabled()) {
+            return Permit.NONE;
+        }
+        int allowed = (int) Math.max(1, currentLimit * share(priority));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                shed[priority.ordinal()].increment();
+                throw overloaded;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(inFlight);
+            }
+        }
+    }
+
+    /** Runs {@code call} under a permit held until its future completes. */
+    public <T> CompletableFuture<T> limitAsync(Priority priority, Supplier<CompletableFuture<T>> call) {
+        Permit permit = acquire(priority);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+        return future.whenComplete((result, throwable) -> permit.release());
+    }
+
+    public <T> T limit(Priority priority, Supplier<T> call) {
+        Permit permit = acquire(priority);
+        try {
+            return call.get();
+        } finally {
+            permit.release();
+        }
+    }
+
+    /** Holds a permit from subscription until the {@code Mono} terminates or is cancelled. */
+    public <T> Mono<T> limitMono(Priority priority, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Permit permit = acquire(priority);
+            return call.get().doFinally(signal -> permit.release());
+        });
+    }
+
+    /** Reports a Mongo call made on the reactive driver as a latency sample. */
+    public <T> Mono<T> sampleMono(Mono<T> mongoCall) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mongoCall
+                    .doOnSuccess(result -> onSample(System.nanoTime() - start, null))
+                    .doOnError(throwable -> onSample(System.nanoTime() - start, throwable));
+        });
+    }
+
+    /** Feeds one Mongo call's latency and outcome ({@code failure} null on success) into the limit. */
+    public void onSample(long rttNanos, Throwable failure) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rttNanos = Math.max(1, rttNanos);
+        synchronized (this) {
+            if (failure != null && InfrastructureFailure.isInfrastructure(failure)) {
+                limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+                currentLimit = (int) limit;
+                return;
+            }
+            if (longRttNanos == 0) {
+                longRttNanos = rttNanos;
+                shortRttNanos = rttNanos;
+            }
+            longRttNanos += (rttNanos - longRttNanos) / properties.getLongWindow();
+            shortRttNanos += (rttNanos - shortRttNanos) / 10;
+            // After a sustained drop in latency, let the long-run average catch up quickly.
+            if (longRttNanos / shortRttNanos > 2) {
+                longRttNanos *= 0.95;
+            }
+            // Without demand near the limit, latency says nothing about whether it is too low.
+            if (inFlight.get() < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / shortRttNanos));
+            double estimate = limit * gradient + Math.sqrt(limit);
+            limit = limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing();
+            limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), limit));
+            currentLimit = (int) limit;
+        }
+    }
+
+    public int currentLimit() {
+        return currentLimit;
+    }
+
+    private double share(Priority priority) {
+        return switch (priority) {
+            case CRITICAL -> 1.0;
+            case NORMAL -> properties.getNormalShare();
+            case SHEDDABLE -> properties.getSheddableShare();
+        };
+    }
+
+    private synchronized double longRtt() {
+        return longRttNanos;
+    }
+
+    public static final class Permit {
+        static final Permit NONE = new Permit(null);
+
+        private final AtomicInteger inFlight;
+        private boolean released;
+
+        private Permit(AtomicInteger inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        public void release() {
+            if (inFlight != null && !released) {
+                released = true;
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
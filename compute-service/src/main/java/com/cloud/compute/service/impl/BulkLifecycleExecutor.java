@@ -0,0 +1,195 @@
+package com.cloud.compute.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.BulkProperties;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkOutcome;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.BulkSummary;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.repository.VMRepository;
+import com.cloud.compute.service.TenantContext;
+import com.cloud.compute.service.TransitionResult;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a bulk lifecycle action in chunks of {@code compute.bulk.batch-size}. Each chunk
+ * costs one state read and one multi-document update; a second read is only needed
+ * when a concurrent writer changed some VMs between the two. Chunks go through the
+ * {@link FairTaskExecutor} under the caller's tenant, so one tenant's large bulk
+ * request queues behind its own work rather than everyone else's.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkLifecycleExecutor {
+    private final VMRepository vmRepository;
+    private final MongoCallLimiter mongoCallLimiter;
+    private final VMCache vmCache;
+    private final FleetStatsTracker fleetStats;
+    private final WriteBehindBuffer writeBehind;
+    private final ChangeSequence changeSequence;
+    private final VMEventBus eventBus;
+    private final BulkProperties properties;
+    private final FairTaskExecutor fairExecutor;
+
+    /**
+     * Checks {@code request} and resolves it to the VM ids it targets. A malformed request
+     * throws {@link InvalidRequestException} right away; a selector matching more than
+     * {@code max-targets} VMs completes the future with one, since finding out takes a
+     * query. Nothing is ever silently dropped.
+     */
+    public CompletableFuture<List<String>> resolveTargets(BulkRequest request) {
+        if (request.getVmIds() != null && !request.getVmIds().isEmpty()) {
+            if (request.getVmIds().size() > properties.getMaxTargets()) {
+                throw new InvalidRequestException("Bulk request exceeds " + properties.getMaxTargets() + " VMs");
+            }
+            return CompletableFuture.completedFuture(new ArrayList<>(new LinkedHashSet<>(request.getVmIds())));
+        }
+        if (request.getSelector() == null || request.getSelector().isEmpty()) {
+            throw new InvalidRequestException("Bulk request requires vmIds or a non-empty selector");
+        }
+        if (!request.getSelector().hasValidMetadata()) {
+            throw new InvalidRequestException("Selector metadata keys must be non-empty, without '.' or a leading '$'");
+        }
+        int maxTargets = properties.getMaxTargets();
+        // One extra id tells a selector that fits from one that would be cut short.
+        return CompletableFuture.supplyAsync(() -> mongoCallLimiter.call(
+                        () -> vmRepository.findIdsBySelector(request.getSelector(), maxTargets + 1)), fairExecutor)
+                .thenApply(ids -> {
+                    if (ids.size() > maxTargets) {
+                        throw new InvalidRequestException("Selector matches more than " + maxTargets
+                                + " VMs; narrow it or pass vmIds");
+                    }
+                    return ids;
+                });
+    }
+
+    /** Runs {@code action} on {@code targets}, as returned by {@link #resolveTargets}. */
+    public CompletableFuture<BulkSummary> execute(BulkAction action, List<String> targets,
+                                                  Consumer<List<BulkOutcome>> progress) {
+        // Chunks are submitted from pool threads, so the tenant is captured while still on the calling thread.
+        Executor tenantExecutor = fairExecutor.forTenant(TenantContext.current());
+        BulkSummary summary = new BulkSummary(action, targets.size());
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < targets.size(); from += properties.getBatchSize()) {
+            chunks.add(targets.subList(from, Math.min(from + properties.getBatchSize(), targets.size())));
+        }
+
+        // Each lane claims the next chunk when its previous one completes, so at most
+        // parallelism chunks run at once and no thread ever waits for another chunk.
+        AtomicInteger next = new AtomicInteger();
+        int lanes = Math.min(Math.max(1, properties.getParallelism()), chunks.size());
+        List<CompletableFuture<Void>> running = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            running.add(runLane(tenantExecutor, action, chunks, next, summary, progress));
+        }
+        return CompletableFuture.allOf(running.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    log.info("Bulk {} finished: {} applied, {} illegal, {} not found", action,
+                            summary.getApplied(), summary.getIllegal(), summary.getNotFound());
+                    return summary;
+                });
+    }
+
+    private CompletableFuture<Void> runLane(Executor executor, BulkAction action, List<List<String>> chunks,
+                                            AtomicInteger next, BulkSummary summary,
+                                            Consumer<List<BulkOutcome>> progress) {
+        int index = next.getAndIncrement();
+        if (index >= chunks.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<String> chunk = chunks.get(index);
+        return CompletableFuture.runAsync(() -> {
+                    List<BulkOutcome> outcomes = mongoCallLimiter.hold(() -> applyChunk(action, chunk));
+                    summary.record(outcomes);
+                    progress.accept(outcomes);
+                }, executor)
+                .thenCompose(ignored -> runLane(executor, action, chunks, next, summary, progress));
+    }
+
+    private List<BulkOutcome> applyChunk(BulkAction action, List<String> vmIds) {
+        writeBehind.flushIfPending(vmIds);
+        // Mongo stores milliseconds, so the stamp must too for the recheck below to match.
+        LocalDateTime stamp = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<String, VM> current = byId(mongoCallLimiter.call(() -> vmRepository.findStatesByIds(vmIds)));
+
+        List<String> candidates = new ArrayList<>();
+        for (String vmId : vmIds) {
+            VM vm = current.get(vmId);
+            if (vm != null && action.getExpectedStates().contains(vm.getState())) {
+                candidates.add(vmId);
+            }
+        }
+
+        Map<String, VM> rechecked = null;
+        long version = changeSequence.next();
+        if (!candidates.isEmpty()) {
+            long modified = mongoCallLimiter.call(() -> vmRepository.updateStatesIfIn(
+                    candidates, action.getExpectedStates(), action.getTargetState(), stamp, version));
+            vmCache.invalidateAll(candidates);
+            if (modified < candidates.size()) {
+                rechecked = byId(mongoCallLimiter.call(() -> vmRepository.findStatesByIds(candidates)));
+            }
+        }
+
+        List<BulkOutcome> outcomes = new ArrayList<>(vmIds.size());
+        for (String vmId : vmIds) {
+            VM before = current.get(vmId);
+            if (before == null) {
+                outcomes.add(new BulkOutcome(vmId, TransitionResult.Status.NOT_FOUND, null));
+            } else if (!action.getExpectedStates().contains(before.getState())) {
+                outcomes.add(new BulkOutcome(vmId, TransitionResult.Status.ILLEGAL, before.getState()));
+            } else if (rechecked == null) {
+                outcomes.add(new BulkOutcome(vmId, TransitionResult.Status.APPLIED, action.getTargetState()));
+            } else {
+                outcomes.add(recheck(vmId, rechecked.get(vmId), action, stamp));
+            }
+        }
+
+        for (BulkOutcome outcome : outcomes) {
+            if (outcome.getStatus() == TransitionResult.Status.APPLIED) {
+                VM vm = current.get(outcome.getVmId());
+                VM.VMState previousState = vm.getState();
+                fleetStats.remove(vm);
+                vm.setState(action.getTargetState());
+                vm.setUpdatedAt(stamp);
+                vm.setVersion(version);
+                fleetStats.add(vm);
+                eventBus.publish(previousState, vm);
+            }
+        }
+        return outcomes;
+    }
+
+    private BulkOutcome recheck(String vmId, VM vm, BulkAction action, LocalDateTime stamp) {
+        if (vm == null) {
+            return new BulkOutcome(vmId, TransitionResult.Status.NOT_FOUND, null);
+        }
+        if (vm.getState() == action.getTargetState() && stamp.equals(vm.getUpdatedAt())) {
+            return new BulkOutcome(vmId, TransitionResult.Status.APPLIED, vm.getState());
+        }
+        return new BulkOutcome(vmId, TransitionResult.Status.ILLEGAL, vm.getState());
+    }
+
+    private static Map<String, VM> byId(List<VM> vms) {
+        return vms.stream().collect(Collectors.toMap(VM::getId, Function.identity()));
+    }
+}
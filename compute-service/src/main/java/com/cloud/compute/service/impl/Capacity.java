@@ -0,0 +1,44 @@
+package com.cloud.compute.service.impl;
+
+import com.cloud.compute.config.PlacementProperties;
+import com.cloud.compute.model.VM;
+
+/** Amounts of the four schedulable resources; used for totals, allocations and demands alike. */
+record Capacity(long cpuCores, long memoryGB, long storageGB, long networkBandwidthMbps) {
+    static final Capacity ZERO = new Capacity(0, 0, 0, 0);
+
+    static Capacity of(VM.ResourceSpec resources) {
+        return resources == null ? ZERO : new Capacity(resources.getCpuCores(), resources.getMemoryGB(),
+                resources.getStorageGB(), resources.getNetworkBandwidthMbps());
+    }
+
+    static Capacity of(PlacementProperties.Zone zone) {
+        return new Capacity(zone.getCpuCores(), zone.getMemoryGB(), zone.getStorageGB(),
+                zone.getNetworkBandwidthMbps());
+    }
+
+    Capacity plus(Capacity other) {
+        return new Capacity(cpuCores + other.cpuCores, memoryGB + other.memoryGB,
+                storageGB + other.storageGB, networkBandwidthMbps + other.networkBandwidthMbps);
+    }
+
+    Capacity minus(Capacity other) {
+        return new Capacity(cpuCores - other.cpuCores, memoryGB - other.memoryGB,
+                storageGB - other.storageGB, networkBandwidthMbps - other.networkBandwidthMbps);
+    }
+
+    boolean fitsWithin(Capacity total) {
+        return cpuCores <= total.cpuCores && memoryGB <= total.memoryGB
+                && storageGB <= total.storageGB && networkBandwidthMbps <= total.networkBandwidthMbps;
+    }
+
+    /** Utilization of the most constrained resource, from 0 to 1; resources with no capacity are ignored. */
+    double dominantShareOf(Capacity total) {
+        return Math.max(Math.max(share(cpuCores, total.cpuCores), share(memoryGB, total.memoryGB)),
+                Math.max(share(storageGB, total.storageGB), share(networkBandwidthMbps, total.networkBandwidthMbps)));
+    }
+
+    private static double share(long used, long total) {
+        return total <= 0 ? 0 : (double) used / total;
+    }
+}
@@ -0,0 +1,51 @@
+package com.cloud.compute.service.impl;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.config.MongoClientProperties;
+import com.cloud.compute.config.QueryProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues VM versions: microseconds since the epoch, bumped past the last one issued so
+ * they strictly increase within this instance and stay in wall-clock order across
+ * instances, restarts included. No round trip is needed to take one.
+ *
+ * <p>A version is taken before its write is sent, so the change feed only reads up to
+ * the longest a write can still take to commit: the Mongo permit wait, the connection
+ * pool wait and the socket timeout, plus {@code changes-settle-time} for clock skew.
+ */
+@Slf4j
+@Component
+public class ChangeSequence {
+    private final AtomicLong last = new AtomicLong();
+    private final Duration settleTime;
+
+    public ChangeSequence(QueryProperties queryProperties, ExecutorProperties executorProperties,
+                          MongoClientProperties mongoProperties) {
+        Duration writeBound = executorProperties.getMongoPermitTimeout()
+                .plus(mongoProperties.getMaxWaitTime())
+                .plus(mongoProperties.getSocketTimeout());
+        if (mongoProperties.getSocketTimeout().isZero()) {
+            log.warn("compute.mongo.socket-timeout is unbounded; the change feed may miss writes slower than {}",
+                    writeBound.plus(queryProperties.getChangesSettleTime()));
+        }
+        this.settleTime = writeBound.plus(queryProperties.getChangesSettleTime());
+    }
+
+    public long next() {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        return last.updateAndGet(previous -> Math.max(previous + 1, now));
+    }
+
+    /** Highest version the change feed may hand out: any write stamped before it has committed or failed. */
+    public long settled() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - settleTime.toMillis());
+    }
+}
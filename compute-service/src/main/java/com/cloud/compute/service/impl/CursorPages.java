@@ -0,0 +1,99 @@
+package com.cloud.compute.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.VMProjection;
+
+/**
+ * Keyset paging helpers shared by the blocking and reactive services. A cursor is the
+ * base64url-encoded {@code _id} of the last item on the previous page; a change feed
+ * token is the base64url-encoded {@code version:_id} of the last change handed out.
+ */
+final class CursorPages {
+    /** Before every VM, including those written before versions existed (version 0). */
+    static final ChangePosition START = new ChangePosition(-1, null);
+    private static final InvalidRequestException INVALID_LIMIT =
+            new InvalidRequestException("limit must be greater than 0");
+    private static final InvalidRequestException INVALID_SINCE = new InvalidRequestException("Invalid since token");
+    private static final InvalidRequestException INVALID_CURSOR = new InvalidRequestException("Invalid cursor");
+
+    /** Where the change feed resumes: after {@code id} within {@code version}, or after all of it if id is null. */
+    record ChangePosition(long version, String id) {
+    }
+
+    private CursorPages() {
+    }
+
+    static int pageSize(Integer limit, QueryProperties properties) {
+        if (limit == null) {
+            return properties.getDefaultPageSize();
+        }
+        if (limit <= 0) {
+            throw INVALID_LIMIT;
+        }
+        return Math.min(limit, properties.getMaxPageSize());
+    }
+
+    /** Builds a page from up to {@code pageSize + 1} fetched items; the extra one only signals a next page. */
+    static <T extends VMProjection> CursorPage<T> of(List<T> fetched, int pageSize) {
+        if (fetched.size() <= pageSize) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> page = fetched.subList(0, pageSize);
+        return new CursorPage<>(page, encode(page.get(pageSize - 1).getId()));
+    }
+
+    /** Builds a change page from up to {@code pageSize + 1} fetched changes, resuming from {@code from}. */
+    static <T extends VMProjection> ChangePage<T> changes(List<T> fetched, int pageSize, ChangePosition from) {
+        boolean hasMore = fetched.size() > pageSize;
+        List<T> page = hasMore ? fetched.subList(0, pageSize) : fetched;
+        if (page.isEmpty()) {
+            return new ChangePage<>(page, encodeChange(from), false);
+        }
+        T last = page.get(page.size() - 1);
+        return new ChangePage<>(page, encodeChange(new ChangePosition(last.getVersion(), last.getId())), hasMore);
+    }
+
+    static String encodeChange(ChangePosition position) {
+        String token = position.id() == null ? Long.toString(position.version())
+                : position.version() + ":" + position.id();
+        return encode(token);
+    }
+
+    static ChangePosition decodeChange(String token) {
+        String decoded = decode(token);
+        if (decoded == null) {
+            return START;
+        }
+        int separator = decoded.indexOf(':');
+        try {
+            return separator < 0
+                    ? new ChangePosition(Long.parseLong(decoded), null)
+                    : new ChangePosition(Long.parseLong(decoded.substring(0, separator)),
+                            decoded.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw INVALID_SINCE;
+        }
+    }
+
+    static String encode(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw INVALID_CURSOR;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.cloud.compute.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.TenantProperties;
+import com.cloud.compute.exception.TenantThrottledException;
+import com.cloud.compute.service.TenantContext;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Executor in front of {@code taskExecutor} that keeps one queue per tenant and hands
+ * at most {@code max-concurrent-tasks} tasks to it at a time, choosing the next task by
+ * deficit round robin: each tenant with waiting work gets up to its weight in tasks per
+ * round. A tenant bursting past {@code max-queued-per-tenant} gets 429 for the excess
+ * instead of filling a queue everyone else waits behind. Queues exist only while they
+ * hold tasks. A task runs with its tenant in {@link TenantContext}, so work it continues
+ * or submits stays charged to the same tenant.
+ */
+@Component
+public class FairTaskExecutor implements Executor {
+    private final TenantProperties properties;
+    private final Executor delegate;
+    private final Counter rejected;
+    private final Object lock = new Object();
+    // Guarded by lock.
+    private final Map<String, TenantQueue> queues = new HashMap<>();
+    private final ArrayDeque<TenantQueue> rotation = new ArrayDeque<>();
+    private int running;
+    private int queued;
+
+    private static final class TenantQueue {
+        final String userId;
+        final int weight;
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        int deficit;
+
+        TenantQueue(String userId, int weight) {
+            this.userId = userId;
+            this.weight = weight;
+        }
+    }
+
+    public FairTaskExecutor(TenantProperties properties, @Qualifier("taskExecutor") Executor delegate,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.delegate = delegate;
+        this.rejected = Counter.builder("compute.tenants.throttled")
+                .description("Requests rejected because the tenant exceeded its rate")
+                .tag("reason", "queue")
+                .register(meterRegistry);
+        Gauge.builder("compute.fair.queued", this, executor -> executor.snapshot()[0])
+                .description("Lifecycle tasks waiting in tenant queues")
+                .register(meterRegistry);
+        Gauge.builder("compute.fair.running", this, executor -> executor.snapshot()[1])
+                .description("Lifecycle tasks handed to the task executor")
+                .register(meterRegistry);
+        Gauge.builder("compute.fair.tenants", this, executor -> executor.snapshot()[2])
+                .description("Tenants with queued lifecycle tasks")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues {@code task} for the current {@link TenantContext} tenant.
+     *
+     * @throws TenantThrottledException if that tenant already has its maximum queued
+     */
+    @Override
+    public void execute(Runnable task) {
+        execute(TenantContext.current(), task);
+    }
+
+    /**
+     * An executor that queues every task for {@code userId}, for work that continues on
+     * pool threads after the request thread carrying the {@link TenantContext} has moved on.
+     */
+    public Executor forTenant(String userId) {
+        return task -> execute(userId, task);
+    }
+
+    private void execute(String userId, Runnable task) {
+        if (!properties.isEnabled()) {
+            delegate.execute(task);
+            return;
+        }
+        List<Runnable> ready;
+        synchronized (lock) {
+            TenantQueue queue = queues.get(userId);
+            if (queue == null) {
+                queue = new TenantQueue(userId, Math.max(1, properties.weightFor(userId)));
+                queues.put(userId, queue);
+                rotation.addLast(queue);
+            } else if (queue.tasks.size() >= properties.getMaxQueuedPerTenant()) {
+                rejected.increment();
+                throw new TenantThrottledException(userId, "Too many queued operations for user " + userId,
+                        Duration.ofSeconds(1));
+            }
+            queue.tasks.addLast(bound(userId, task));
+            queued++;
+            ready = dispatch();
+        }
+        submit(ready);
+    }
+
+    private static Runnable bound(String userId, Runnable task) {
+        return () -> {
+            // Restored rather than cleared: a refused hand-off runs the task on the submitting thread.
+            String previous = TenantContext.current();
+            TenantContext.set(userId);
+            try {
+                task.run();
+            } finally {
+                TenantContext.set(previous);
+            }
+        };
+    }
+
+    /** Picks tasks to run while slots are free. Caller holds the lock. */
+    private List<Runnable> dispatch() {
+        List<Runnable> ready = new ArrayList<>();
+        while (running < properties.getMaxConcurrentTasks() && !rotation.isEmpty()) {
+            TenantQueue queue = rotation.peekFirst();
+            if (queue.deficit == 0) {
+                queue.deficit = queue.weight;
+            }
+            ready.add(queue.tasks.pollFirst());
+            queue.deficit--;
+            queued--;
+            running++;
+            if (queue.tasks.isEmpty()) {
+                rotation.pollFirst();
+                queues.remove(queue.userId);
+            } else if (queue.deficit == 0) {
+                rotation.addLast(rotation.pollFirst());
+            }
+        }
+        return ready;
+    }
+
+    /** Hands tasks to the delegate outside the lock; each frees its slot when done. */
+    private void submit(List<Runnable> ready) {
+        for (Runnable task : ready) {
+            Runnable tracked = () -> {
+                try {
+                    task.run();
+                } finally {
+                    complete();
+                }
+            };
+            try {
+                delegate.execute(tracked);
+            } catch (RejectedExecutionException e) {
+                // Only a platform pool smaller than max-concurrent-tasks refuses; a dequeued task is never dropped.
+                tracked.run();
+            }
+        }
+    }
+
+    private void complete() {
+        List<Runnable> ready;
+        synchronized (lock) {
+            running--;
+            ready = dispatch();
+        }
+        submit(ready);
+    }
+
+    private double[] snapshot() {
+        synchronized (lock) {
+            return new double[] {queued, running, queues.size()};
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.cloud.compute.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.ProvisioningProperties;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.service.HypervisorDriver;
+
+/**
+ * In-process driver for local runs and tests: each batch takes {@code fake-latency},
+ * and each VM fails with probability {@code fake-failure-rate}. Only created when
+ * {@code compute.provisioning.driver} is {@code fake}, as in the local profile.
+ */
+@Component
+@ConditionalOnProperty(prefix = "compute.provisioning", name = "driver", havingValue = "fake")
+public class FakeHypervisorDriver implements HypervisorDriver {
+    private final long latencyNanos;
+    private final double failureRate;
+
+    public FakeHypervisorDriver(ProvisioningProperties properties) {
+        this.latencyNanos = properties.getFakeLatency().toNanos();
+        this.failureRate = properties.getFakeFailureRate();
+    }
+
+    @Override
+    public List<Result> provision(List<VM> vms) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        List<Result> results = new ArrayList<>(vms.size());
+        for (VM vm : vms) {
+            results.add(ThreadLocalRandom.current().nextDouble() < failureRate
+                    ? Result.failed(vm.getId(), "Simulated hypervisor failure")
+                    : Result.provisioned(vm.getId()));
+        }
+        return results;
+    }
+}
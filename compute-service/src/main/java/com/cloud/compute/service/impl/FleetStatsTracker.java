@@ -0,0 +1,163 @@
+package com.cloud.compute.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.model.FleetStats;
+import com.cloud.compute.model.FleetStatsGroup;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.repository.VMRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory VM counts and allocated capacity per state × region × AZ × instanceType.
+ * Every committed write moves its VM between cells; a Mongo aggregation rebuilds the
+ * counters at startup and on {@code compute.stats.reconcile-interval} to correct drift
+ * from writes made by other instances. Reads touch only the cells, never the collection.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FleetStatsTracker implements ApplicationRunner {
+    private final VMRepository vmRepository;
+    private volatile Map<Key, Counters> cells = new ConcurrentHashMap<>();
+
+    public void add(VM vm) {
+        apply(vm, 1);
+    }
+
+    public void remove(VM vm) {
+        apply(vm, -1);
+    }
+
+    private void apply(VM vm, int sign) {
+        cells.computeIfAbsent(Key.of(vm), key -> new Counters()).add(vm.getResources(), sign);
+    }
+
+    /** Totals and per-cell breakdown for the cells matching the given (nullable) keys. */
+    public FleetStats snapshot(VM.VMState state, String region, String availabilityZone, String instanceType) {
+        FleetStats stats = new FleetStats(0, 0, 0, 0, 0, new ArrayList<>());
+        cells.forEach((key, counters) -> {
+            if (!key.matches(state, region, availabilityZone, instanceType)) {
+                return;
+            }
+            FleetStatsGroup group = counters.toGroup(key);
+            if (group.getCount() == 0) {
+                return;
+            }
+            stats.getGroups().add(group);
+            stats.setCount(stats.getCount() + group.getCount());
+            stats.setCpuCores(stats.getCpuCores() + group.getCpuCores());
+            stats.setMemoryGB(stats.getMemoryGB() + group.getMemoryGB());
+            stats.setStorageGB(stats.getStorageGB() + group.getStorageGB());
+            stats.setNetworkBandwidthMbps(stats.getNetworkBandwidthMbps() + group.getNetworkBandwidthMbps());
+        });
+        return stats;
+    }
+
+    /**
+     * Resources held per availability zone by VMs that are not TERMINATED. One pass over
+     * the cells, so the cost depends on the number of cells, not on the fleet size.
+     */
+    Map<String, Capacity> allocatedByZone() {
+        Map<String, Capacity> allocated = new HashMap<>();
+        cells.forEach((key, counters) -> {
+            if (key.state() != VM.VMState.TERMINATED && key.availabilityZone() != null) {
+                allocated.merge(key.availabilityZone(), counters.toCapacity(), Capacity::plus);
+            }
+        });
+        return allocated;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${compute.stats.reconcile-interval:PT5M}",
+               initialDelayString = "${compute.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        List<FleetStatsGroup> groups = vmRepository.aggregateFleetStats();
+        Map<Key, Counters> rebuilt = new ConcurrentHashMap<>();
+        for (FleetStatsGroup group : groups) {
+            rebuilt.put(Key.of(group), Counters.of(group));
+        }
+        // Writes racing with the aggregation may be lost here; the next reconcile fixes them.
+        cells = rebuilt;
+        log.info("Rebuilt fleet statistics from {} groups", groups.size());
+    }
+
+    private record Key(VM.VMState state, String region, String availabilityZone, String instanceType) {
+        static Key of(VM vm) {
+            return new Key(vm.getState(), vm.getRegion(), vm.getAvailabilityZone(), vm.getInstanceType());
+        }
+
+        static Key of(FleetStatsGroup group) {
+            return new Key(group.getState(), group.getRegion(), group.getAvailabilityZone(), group.getInstanceType());
+        }
+
+        boolean matches(VM.VMState state, String region, String availabilityZone, String instanceType) {
+            return (state == null || state == this.state)
+                    && (region == null || region.equals(this.region))
+                    && (availabilityZone == null || availabilityZone.equals(this.availabilityZone))
+                    && (instanceType == null || instanceType.equals(this.instanceType));
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder cpuCores = new LongAdder();
+        private final LongAdder memoryGB = new LongAdder();
+        private final LongAdder storageGB = new LongAdder();
+        private final LongAdder networkBandwidthMbps = new LongAdder();
+
+        static Counters of(FleetStatsGroup group) {
+            Counters counters = new Counters();
+            counters.count.add(group.getCount());
+            counters.cpuCores.add(group.getCpuCores());
+            counters.memoryGB.add(group.getMemoryGB());
+            counters.storageGB.add(group.getStorageGB());
+            counters.networkBandwidthMbps.add(group.getNetworkBandwidthMbps());
+            return counters;
+        }
+
+        void add(VM.ResourceSpec resources, int sign) {
+            count.add(sign);
+            if (resources != null) {
+                cpuCores.add((long) sign * resources.getCpuCores());
+                memoryGB.add((long) sign * resources.getMemoryGB());
+                storageGB.add((long) sign * resources.getStorageGB());
+                networkBandwidthMbps.add((long) sign * resources.getNetworkBandwidthMbps());
+            }
+        }
+
+        Capacity toCapacity() {
+            return new Capacity(cpuCores.sum(), memoryGB.sum(), storageGB.sum(), networkBandwidthMbps.sum());
+        }
+
+        FleetStatsGroup toGroup(Key key) {
+            FleetStatsGroup group = new FleetStatsGroup();
+            group.setState(key.state());
+            group.setRegion(key.region());
+            group.setAvailabilityZone(key.availabilityZone());
+            group.setInstanceType(key.instanceType());
+            group.setCount(count.sum());
+            group.setCpuCores(cpuCores.sum());
+            group.setMemoryGB(memoryGB.sum());
+            group.setStorageGB(storageGB.sum());
+            group.setNetworkBandwidthMbps(networkBandwidthMbps.sum());
+            return group;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cloud.compute.service.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.IdempotencyProperties;
+import com.cloud.compute.service.VMResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded dedupe store for createVM retries. The first request for a key runs the
+ * create; concurrent and later retries with the same key share its result. Failed
+ * creates, whether faults or failed results, are forgotten so the client can retry them.
+ */
+@Component
+public class IdempotencyStore {
+    private final Cache<String, CompletableFuture<VMResult>> results;
+
+    public IdempotencyStore(IdempotencyProperties properties) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    public CompletableFuture<VMResult> execute(String key, Supplier<CompletableFuture<VMResult>> operation) {
+        CompletableFuture<VMResult> result = new CompletableFuture<>();
+        CompletableFuture<VMResult> existing = results.asMap().putIfAbsent(key, result);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<VMResult> started;
+        try {
+            started = operation.get();
+        } catch (RuntimeException e) {
+            // Thrown before anything ran, e.g. a rejected submission; retries must not wait on it.
+            results.asMap().remove(key, result);
+            result.completeExceptionally(e);
+            return result;
+        }
+        started.whenComplete((outcome, throwable) -> {
+            if (throwable != null || !outcome.isOk()) {
+                results.asMap().remove(key, result);
+            }
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(outcome);
+            }
+        });
+        return result;
+    }
+}
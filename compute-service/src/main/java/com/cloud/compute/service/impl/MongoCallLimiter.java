@@ -0,0 +1,114 @@
+package com.cloud.compute.service.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.ExecutorProperties;
+import com.cloud.compute.exception.ServiceOverloadedException;
+import com.cloud.compute.exception.VMException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caps the number of Mongo calls in flight from lifecycle tasks. With virtual threads
+ * the executor no longer bounds concurrency, so the limit has to live here instead,
+ * and so does the queue: callers waiting for a permit are what the executor's queue
+ * depth would otherwise show. A multi-step task holds one permit throughout with
+ * {@link #hold}; each repository round trip goes through {@link #call}, which reports
+ * just that round trip's time to {@link AdaptiveConcurrencyLimiter}, which sizes
+ * admission from it.
+ */
+@Component
+public class MongoCallLimiter {
+    private final Semaphore permits;
+    private final long timeoutMillis;
+    private final ServiceOverloadedException timedOut;
+    private final Timer permitWait;
+    private final Counter permitTimeouts;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    /** Set while this thread holds a permit. */
+    private final ThreadLocal<Boolean> held = new ThreadLocal<>();
+
+    public MongoCallLimiter(ExecutorProperties properties, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                            MeterRegistry meterRegistry) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.permits = new Semaphore(properties.getMaxConcurrentMongoCalls(), true);
+        this.timeoutMillis = properties.getMongoPermitTimeout().toMillis();
+        this.timedOut = new ServiceOverloadedException(properties.getMongoPermitTimeout());
+        this.permitWait = Timer.builder("compute.mongo.permits.wait")
+                .description("Time lifecycle tasks wait for a Mongo call permit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.permitTimeouts = Counter.builder("compute.mongo.permits.timeouts")
+                .description("Calls rejected after waiting mongo-permit-timeout for a permit")
+                .register(meterRegistry);
+        Gauge.builder("compute.mongo.permits.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("compute.mongo.permits.waiting", permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code task} under a permit without timing it; the repository calls it makes
+     * report their own time through {@link #call}. A task already running under a permit
+     * on this thread, such as a write-behind flush inside a lifecycle task, reuses it
+     * instead of queueing for a second permit behind the very callers waiting on it.
+     */
+    public <T> T hold(Supplier<T> task) {
+        if (held.get() != null) {
+            return task.get();
+        }
+        boolean acquired;
+        long start = System.nanoTime();
+        try {
+            acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VMException("Interrupted while waiting for a Mongo permit", e);
+        } finally {
+            permitWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            permitTimeouts.increment();
+            throw timedOut;
+        }
+        held.set(Boolean.TRUE);
+        try {
+            return task.get();
+        } finally {
+            held.remove();
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs one repository round trip under a permit, reusing this thread's if it holds
+     * one, and reports its time as a Mongo round-trip sample. Pass only the repository
+     * invocation: anything else in {@code repositoryCall} would be counted as Mongo time.
+     */
+    public <T> T call(Supplier<T> repositoryCall) {
+        return hold(() -> {
+            long start = System.nanoTime();
+            try {
+                T result = repositoryCall.get();
+                concurrencyLimiter.onSample(System.nanoTime() - start, null);
+                return result;
+            } catch (RuntimeException e) {
+                // A duplicate key is Mongo answering, not failing: the create's unique name check.
+                concurrencyLimiter.onSample(System.nanoTime() - start, e instanceof DuplicateKeyException ? null : e);
+                throw e;
+            }
+        });
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,156 @@
+package com.cloud.compute.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.PlacementProperties;
+import com.cloud.compute.exception.InsufficientCapacityException;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.model.VM;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses and reserves an availability zone for new VMs against the capacity in
+ * {@code compute.placement.zones}. Allocated capacity comes from {@link FleetStatsTracker},
+ * which is rebuilt from Mongo at startup and updated on every write. Reservations cover
+ * the window between the decision and the insert reaching the tracker, so concurrent
+ * creates cannot both take the last slot. A decision scans the configured zones once
+ * and is independent of fleet size.
+ */
+@Slf4j
+@Component
+public class PlacementEngine {
+    private final PlacementProperties.Policy policy;
+    private final Map<String, Zone> zones = new LinkedHashMap<>();
+    private final FleetStatsTracker fleetStats;
+    private final ReentrantLock lock = new ReentrantLock();
+    /** Capacity reserved for creates still in flight, by AZ; guarded by {@code lock}. */
+    private final Map<String, Capacity> reserved = new HashMap<>();
+
+    public PlacementEngine(PlacementProperties properties, FleetStatsTracker fleetStats) {
+        this.policy = properties.getPolicy();
+        this.fleetStats = fleetStats;
+        for (PlacementProperties.Zone zone : properties.getZones()) {
+            zones.put(zone.getAvailabilityZone(),
+                    new Zone(zone.getRegion(), zone.getAvailabilityZone(), Capacity.of(zone)));
+        }
+    }
+
+    /**
+     * Picks a zone for {@code vm}, honouring any region or availabilityZone it already
+     * names, sets both fields, and holds its resources until the reservation is released.
+     * Release only after the created VM has been added to {@link FleetStatsTracker}, or
+     * after the insert failed.
+     */
+    public Reservation reserve(VM vm) {
+        if (zones.isEmpty()) {
+            return Reservation.NONE;
+        }
+        List<Zone> candidates = candidates(vm);
+        Capacity demand = Capacity.of(vm.getResources());
+        lock.lock();
+        try {
+            Map<String, Capacity> allocated = fleetStats.allocatedByZone();
+            Zone chosen = null;
+            double chosenShare = 0;
+            for (Zone zone : candidates) {
+                Capacity after = allocated.getOrDefault(zone.availabilityZone(), Capacity.ZERO)
+                        .plus(reserved.getOrDefault(zone.availabilityZone(), Capacity.ZERO))
+                        .plus(demand);
+                if (!after.fitsWithin(zone.total())) {
+                    continue;
+                }
+                double share = after.dominantShareOf(zone.total());
+                boolean better = policy == PlacementProperties.Policy.BIN_PACK
+                        ? share > chosenShare
+                        : share < chosenShare;
+                if (chosen == null || better) {
+                    chosen = zone;
+                    chosenShare = share;
+                }
+            }
+            if (chosen == null) {
+                throw new InsufficientCapacityException("No capacity for the requested resources"
+                        + (vm.getAvailabilityZone() != null ? " in " + vm.getAvailabilityZone()
+                        : vm.getRegion() != null ? " in region " + vm.getRegion() : ""));
+            }
+            reserved.merge(chosen.availabilityZone(), demand, Capacity::plus);
+            log.debug("Placed VM {} in {} ({}, dominant share {})", vm.getName(), chosen.availabilityZone(),
+                    policy, chosenShare);
+            vm.setRegion(chosen.region());
+            vm.setAvailabilityZone(chosen.availabilityZone());
+            return new Reservation(this, chosen.availabilityZone(), demand);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Zone> candidates(VM vm) {
+        if (vm.getAvailabilityZone() != null) {
+            Zone zone = zones.get(vm.getAvailabilityZone());
+            if (zone == null || (vm.getRegion() != null && !vm.getRegion().equals(zone.region()))) {
+                throw new InvalidRequestException("Unknown availability zone: " + vm.getAvailabilityZone());
+            }
+            return List.of(zone);
+        }
+        if (vm.getRegion() == null) {
+            return List.copyOf(zones.values());
+        }
+        List<Zone> inRegion = new ArrayList<>();
+        for (Zone zone : zones.values()) {
+            if (vm.getRegion().equals(zone.region())) {
+                inRegion.add(zone);
+            }
+        }
+        if (inRegion.isEmpty()) {
+            throw new InvalidRequestException("Unknown region: " + vm.getRegion());
+        }
+        return inRegion;
+    }
+
+    private void release(String availabilityZone, Capacity demand) {
+        lock.lock();
+        try {
+            reserved.computeIfPresent(availabilityZone, (az, held) -> {
+                Capacity remaining = held.minus(demand);
+                return remaining.equals(Capacity.ZERO) ? null : remaining;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Zone(String region, String availabilityZone, Capacity total) {
+    }
+
+    /** Capacity held for one create; {@link #release()} is idempotent. */
+    public static final class Reservation {
+        static final Reservation NONE = new Reservation(null, null, Capacity.ZERO);
+
+        private final PlacementEngine engine;
+        private final String availabilityZone;
+        private final Capacity demand;
+        private boolean released;
+
+        private Reservation(PlacementEngine engine, String availabilityZone, Capacity demand) {
+            this.engine = engine;
+            this.availabilityZone = availabilityZone;
+            this.demand = demand;
+        }
+
+        public synchronized void release() {
+            if (released || engine == null) {
+                return;
+            }
+            released = true;
+            engine.release(availabilityZone, demand);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.cloud.compute.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.ProvisioningProperties;
+import com.cloud.compute.exception.ProvisioningQueueFullException;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.repository.VMRepository;
+import com.cloud.compute.service.HypervisorDriver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves PENDING VMs to RUNNING, or ERROR when the hypervisor driver fails them. createVM
+ * claims a slot with {@link #admit(VM)} before inserting, so a full pipeline turns into an
+ * immediate 429 instead of an unbounded queue or a VM stuck in PENDING. A fixed set of
+ * workers drains the queue in batches of up to {@code batch-size}: one driver call and
+ * one conditional multi-update per outcome per batch. A slot is freed once its VM's
+ * outcome is committed.
+ *
+ * <p>Every queued VM carries a provisioning lease naming this instance: admitted VMs are
+ * inserted with one, and a periodic sweep claims PENDING VMs whose lease is missing or
+ * expired, such as those left over from a restart, one atomic findAndModify on the
+ * primary at a time. So each VM reaches the driver from one instance at a time. Commits
+ * are conditional on PENDING, so a VM picked up twice is only moved once.
+ */
+@Slf4j
+@Component
+public class ProvisioningPipeline implements ApplicationRunner, DisposableBean {
+    private static final Set<VM.VMState> PENDING = EnumSet.of(VM.VMState.PENDING);
+
+    private final ProvisioningProperties properties;
+    private final VMRepository vmRepository;
+    private final HypervisorDriver driver;
+    private final MongoCallLimiter mongoCallLimiter;
+    private final VMCache vmCache;
+    private final FleetStatsTracker fleetStats;
+    private final WriteBehindBuffer writeBehind;
+    private final ChangeSequence changeSequence;
+    private final VMEventBus eventBus;
+    private final Semaphore slots;
+    private final ProvisioningQueueFullException queueFull;
+    /** Lease owner written by this instance. */
+    private final String owner = UUID.randomUUID().toString();
+    private final BlockingQueue<VM> queue = new LinkedBlockingQueue<>();
+    /** Ids queued or being processed, so admitted and swept copies of a VM are not both queued. */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Counter rejected;
+    private final Counter provisioned;
+    private final Counter failed;
+    private final Timer driverTimer;
+    private volatile boolean running;
+    private ExecutorService workers;
+
+    public ProvisioningPipeline(ProvisioningProperties properties, VMRepository vmRepository,
+                                @Nullable HypervisorDriver driver, MongoCallLimiter mongoCallLimiter, VMCache vmCache,
+                                FleetStatsTracker fleetStats, WriteBehindBuffer writeBehind,
+                                ChangeSequence changeSequence, VMEventBus eventBus, MeterRegistry meterRegistry) {
+        if (properties.isEnabled() && driver == null) {
+            // Never fall back to the fake driver: it would mark VMs RUNNING that do not exist.
+            throw new IllegalStateException("compute.provisioning.enabled is true but no hypervisor driver is "
+                    + "configured for compute.provisioning.driver=" + properties.getDriver());
+        }
+        this.properties = properties;
+        this.vmRepository = vmRepository;
+        this.driver = driver;
+        this.mongoCallLimiter = mongoCallLimiter;
+        this.vmCache = vmCache;
+        this.fleetStats = fleetStats;
+        this.writeBehind = writeBehind;
+        this.changeSequence = changeSequence;
+        this.eventBus = eventBus;
+        this.slots = new Semaphore(properties.getQueueCapacity());
+        this.queueFull = new ProvisioningQueueFullException(properties.getRetryAfter());
+
+        Gauge.builder("compute.provisioning.queued", queue, BlockingQueue::size)
+                .description("VMs waiting for a provisioning worker")
+                .register(meterRegistry);
+        Gauge.builder("compute.provisioning.in.flight", inFlight, Set::size)
+                .description("VMs queued or being provisioned")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("compute.provisioning.rejected")
+                .description("Creates rejected with 429 because the provisioning queue was full")
+                .register(meterRegistry);
+        this.provisioned = Counter.builder("compute.provisioning.outcomes").tag("outcome", "running")
+                .register(meterRegistry);
+        this.failed = Counter.builder("compute.provisioning.outcomes").tag("outcome", "error")
+                .register(meterRegistry);
+        this.driverTimer = Timer.builder("compute.provisioning.driver")
+                .description("Hypervisor driver time per batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claims a queue slot for a VM about to be created and stamps it with this instance's
+     * lease, so other instances' sweeps leave it alone once inserted.
+     *
+     * @throws ProvisioningQueueFullException if every slot is taken
+     */
+    public Ticket admit(VM vm) {
+        if (!properties.isEnabled()) {
+            return Ticket.NONE;
+        }
+        if (!slots.tryAcquire()) {
+            rejected.increment();
+            throw queueFull;
+        }
+        vm.setProvisioningLease(lease(LocalDateTime.now()));
+        return new Ticket(this);
+    }
+
+    private VM.ProvisioningLease lease(LocalDateTime now) {
+        VM.ProvisioningLease lease = new VM.ProvisioningLease();
+        lease.setOwner(owner);
+        lease.setUntil(now.plus(properties.getLeaseDuration()));
+        return lease;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        workers = Executors.newFixedThreadPool(properties.getWorkers(), new CustomizableThreadFactory("Provisioning-"));
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.execute(this::work);
+        }
+        log.info("Provisioning pipeline started with {} workers", properties.getWorkers());
+        sweep();
+    }
+
+    @Scheduled(fixedDelayString = "${compute.provisioning.sweep-interval:PT1M}",
+               initialDelayString = "${compute.provisioning.sweep-interval:PT1M}")
+    public void sweep() {
+        if (!running) {
+            return;
+        }
+        int swept = 0;
+        while (slots.tryAcquire()) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseUntil = now.plus(properties.getLeaseDuration());
+            Optional<VM> claimed = mongoCallLimiter.call(
+                    () -> vmRepository.claimNextPending(owner, now, leaseUntil));
+            if (claimed.isEmpty()) {
+                slots.release();
+                break;
+            }
+            VM vm = claimed.get();
+            if (inFlight.add(vm.getId())) {
+                queue.add(vm);
+                swept++;
+            } else {
+                // Already queued here; the claim just renewed this instance's lease.
+                slots.release();
+            }
+        }
+        // A full queue stops the sweep: admitted creates take priority, the next sweep continues.
+        if (swept > 0) {
+            log.info("Claimed {} PENDING VMs for provisioning", swept);
+        }
+    }
+
+    private void work() {
+        List<VM> batch = new ArrayList<>(properties.getBatchSize());
+        while (running) {
+            try {
+                VM first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Take whatever else is waiting: batches grow with load without adding idle latency.
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                provision(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // VMs stay PENDING and are claimed again by a sweep once their lease expires.
+                log.error("Provisioning batch of {} VMs failed: {}", batch.size(), e.getMessage(), e);
+            } finally {
+                for (VM vm : batch) {
+                    inFlight.remove(vm.getId());
+                }
+                slots.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void provision(List<VM> batch) {
+        List<HypervisorDriver.Result> results;
+        long start = System.nanoTime();
+        try {
+            results = driver.provision(batch);
+        } catch (RuntimeException e) {
+            log.warn("Hypervisor driver failed a batch of {} VMs: {}", batch.size(), e.getMessage());
+            results = batch.stream()
+                    .map(vm -> HypervisorDriver.Result.failed(vm.getId(), e.getMessage()))
+                    .toList();
+        } finally {
+            driverTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        Map<String, VM> byId = batch.stream().collect(Collectors.toMap(VM::getId, Function.identity(), (a, b) -> a));
+        List<VM> running = new ArrayList<>();
+        List<VM> errored = new ArrayList<>();
+        for (HypervisorDriver.Result result : results) {
+            VM vm = byId.get(result.vmId());
+            if (vm == null) {
+                continue;
+            }
+            if (result.provisioned()) {
+                running.add(vm);
+            } else {
+                log.warn("Provisioning failed for VM {}: {}", result.vmId(), result.error());
+                errored.add(vm);
+            }
+        }
+        provisioned.increment(commit(running, VM.VMState.RUNNING));
+        failed.increment(commit(errored, VM.VMState.ERROR));
+    }
+
+    /** Moves the VMs still PENDING to {@code target} in one update; returns how many moved. */
+    private int commit(List<VM> vms, VM.VMState target) {
+        if (vms.isEmpty()) {
+            return 0;
+        }
+        List<String> ids = vms.stream().map(VM::getId).toList();
+        writeBehind.flushIfPending(ids);
+        // Mongo stores milliseconds, so the stamp must too for the recheck below to match.
+        LocalDateTime stamp = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        long version = changeSequence.next();
+        long modified = mongoCallLimiter.call(
+                () -> vmRepository.updateStatesIfIn(ids, PENDING, target, stamp, version));
+        vmCache.invalidateAll(ids);
+
+        Set<String> applied;
+        if (modified == ids.size()) {
+            applied = new HashSet<>(ids);
+        } else {
+            // Some VMs left PENDING meanwhile (e.g. terminated); only count the ones this update moved.
+            applied = mongoCallLimiter.call(() -> vmRepository.findStatesByIds(ids)).stream()
+                    .filter(vm -> vm.getState() == target && stamp.equals(vm.getUpdatedAt()))
+                    .map(VM::getId)
+                    .collect(Collectors.toSet());
+        }
+        for (VM vm : vms) {
+            if (applied.contains(vm.getId())) {
+                VM moved = withState(vm, target);
+                moved.setUpdatedAt(stamp);
+                moved.setVersion(version);
+                fleetStats.remove(vm);
+                fleetStats.add(moved);
+                eventBus.publish(VM.VMState.PENDING, moved);
+            }
+        }
+        return applied.size();
+    }
+
+    /** Copy carrying the fields fleet statistics and events are keyed on; the queued document is left as is. */
+    private static VM withState(VM source, VM.VMState state) {
+        VM vm = new VM();
+        vm.setId(source.getId());
+        vm.setState(state);
+        vm.setUserId(source.getUserId());
+        vm.setRegion(source.getRegion());
+        vm.setAvailabilityZone(source.getAvailabilityZone());
+        vm.setInstanceType(source.getInstanceType());
+        vm.setResources(source.getResources());
+        return vm;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            // Anything unfinished stays PENDING and is claimed again once its lease expires.
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /** A claimed slot; either {@link #enqueue} the created VM or {@link #cancel()}. */
+    public static final class Ticket {
+        static final Ticket NONE = new Ticket(null);
+
+        private final ProvisioningPipeline pipeline;
+        private boolean done;
+
+        private Ticket(ProvisioningPipeline pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        public void enqueue(VM vm) {
+            if (pipeline == null || done) {
+                return;
+            }
+            done = true;
+            if (pipeline.inFlight.add(vm.getId())) {
+                pipeline.queue.add(vm);
+            } else {
+                // A sweep already queued it with its own slot.
+                pipeline.slots.release();
+            }
+        }
+
+        /** Frees the slot if the VM was never enqueued; safe to call after {@link #enqueue}. */
+        public void cancel() {
+            if (pipeline == null || done) {
+                return;
+            }
+            done = true;
+            pipeline.slots.release();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.cloud.compute.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.exception.InsufficientCapacityException;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.exception.RetryLaterException;
+import com.cloud.compute.exception.VMException;
+import com.cloud.compute.exception.VMNameTakenException;
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
+import com.cloud.compute.repository.reactive.ReactiveVMRepository;
+import com.cloud.compute.service.ReactiveVMService;
+import com.cloud.compute.service.TransitionResult;
+import com.cloud.compute.service.VMService;
+
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive request path: the same conditional findAndModify transitions, cache and fleet
+ * statistics bookkeeping as {@link VMServiceImpl}, but on the reactive driver so no
+ * thread waits on Mongo. Bulk actions, resource validation and fleet statistics are
+ * in-memory or already chunked, and are delegated to the blocking service. So are state
+ * transitions when write-behind is enabled, since they wait on a local journal sync.
+ */
+@Slf4j
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveVMServiceImpl implements ReactiveVMService {
+    private final ReactiveVMRepository reactiveVMRepository;
+    private final VMService vmService;
+    private final VMTransitionEngine transitionEngine;
+    private final VMCache vmCache;
+    private final WriteBehindBuffer writeBehind;
+    private final IdempotencyStore idempotencyStore;
+    private final FleetStatsTracker fleetStats;
+    private final PlacementEngine placementEngine;
+    private final ProvisioningPipeline provisioningPipeline;
+    private final QueryProperties queryProperties;
+    private final VMOperationMetrics operationMetrics;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ChangeSequence changeSequence;
+    private final VMEventBus eventBus;
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> createVM(VM vm, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return operationMetrics.timeMono("createVM", () -> insertVM(vm));
+        }
+        // Scope keys per user so two tenants cannot collide on the same key.
+        String key = vm.getUserId() + ":" + idempotencyKey;
+        return operationMetrics.timeMono("createVM",
+                () -> Mono.fromFuture(() -> idempotencyStore.execute(key, () -> insertVM(vm).toFuture())));
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> startVM(String vmId) {
+        return transition("startVM", "Failed to start VM", vmId,
+                EnumSet.of(VM.VMState.STOPPED), VM.VMState.RUNNING, "VM is not in STOPPED state");
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> stopVM(String vmId) {
+        return transition("stopVM", "Failed to stop VM", vmId,
+                EnumSet.of(VM.VMState.RUNNING), VM.VMState.STOPPED, "VM is not in RUNNING state");
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> terminateVM(String vmId) {
+        return transition("terminateVM", "Failed to terminate VM", vmId,
+                VM.VMState.sourcesOf(VM.VMState.TERMINATED), VM.VMState.TERMINATED, "VM is already terminated");
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> modifyVM(String vmId, VM.VMState newState) {
+        return transition("modifyVM", "Failed to modify VM state", vmId,
+                VM.VMState.sourcesOf(newState), newState, "VM cannot move to " + newState + " from its current state");
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> updateResources(String vmId, VM.ResourceSpec newResources) {
+        return update(AdaptiveConcurrencyLimiter.Priority.NORMAL, "updateResources", "Failed to update VM resources",
+                vmId, EnumSet.of(VM.VMState.STOPPED), () -> {
+                    vmService.validateVMResources(newResources);
+                    return VMChange.resources(newResources);
+                },
+                "VM must be stopped to update resources");
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public Mono<VM> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig) {
+        return update(AdaptiveConcurrencyLimiter.Priority.NORMAL, "updateNetworkConfig",
+                "Failed to update VM network configuration", vmId, EnumSet.of(VM.VMState.STOPPED),
+                () -> VMChange.networkConfig(newConfig),
+                "VM must be stopped to update network configuration");
+    }
+
+    @Override
+    public Mono<List<String>> resolveBulkTargets(BulkRequest request) {
+        return Mono.defer(() -> Mono.fromFuture(vmService.resolveBulkTargets(request)));
+    }
+
+    @Override
+    public Flux<Object> bulkTransition(BulkAction action, List<String> vmIds) {
+        // The sink serializes progress callbacks from concurrent chunks; volume is capped by max-targets.
+        return Flux.create(sink -> vmService.bulkTransition(action, vmIds, outcomes -> outcomes.forEach(sink::next))
+                .whenComplete((summary, throwable) -> {
+                    if (throwable != null) {
+                        sink.error(throwable);
+                        return;
+                    }
+                    sink.next(summary);
+                    sink.complete();
+                }), FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    @Override
+    public Mono<VM> getVM(String vmId) {
+        return operationMetrics.timeMono("getVM", () -> concurrencyLimiter.limitMono(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL,
+                () -> Mono.justOrEmpty(vmCache.getIfPresent(vmId).or(() -> writeBehind.get(vmId)))
+                        .switchIfEmpty(Mono.defer(() -> concurrencyLimiter
+                                .sampleMono(reactiveVMRepository.findById(vmId))
+                                .map(vmCache::put)))));
+    }
+
+    @Override
+    public <T extends VMProjection> Mono<CursorPage<T>> getVMs(VMFilter filter, String cursor, Integer limit,
+                                                               Class<T> view) {
+        return operationMetrics.timeMono("listVMs", () -> concurrencyLimiter.limitMono(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL, () -> {
+                    int pageSize = CursorPages.pageSize(limit, queryProperties);
+                    // Fetch one extra document to learn whether another page exists.
+                    return reactiveVMRepository.findPage(filter, CursorPages.decode(cursor), pageSize + 1, view)
+                            .collectList()
+                            .map(vms -> CursorPages.of(vms, pageSize));
+                }));
+    }
+
+    @Override
+    public <T extends VMProjection> Flux<T> streamVMs(VMFilter filter, Class<T> view) {
+        return reactiveVMRepository.findMatching(filter, queryProperties.getStreamBatchSize(), view);
+    }
+
+    @Override
+    public <T extends VMProjection> Mono<ChangePage<T>> getChanges(String since, Integer limit, Class<T> view) {
+        return operationMetrics.timeMono("getChanges", () -> concurrencyLimiter.limitMono(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL, () -> {
+                    int pageSize = CursorPages.pageSize(limit, queryProperties);
+                    CursorPages.ChangePosition from = CursorPages.decodeChange(since);
+                    long settled = changeSequence.settled();
+                    return reactiveVMRepository.findChanges(from.version(), from.id(), settled, pageSize + 1, view)
+                            .collectList()
+                            .map(changes -> CursorPages.changes(changes, pageSize, from));
+                }));
+    }
+
+    @Override
+    public Mono<FleetStats> getFleetStats(VM.VMState state, String region, String availabilityZone,
+                                          String instanceType) {
+        return Mono.fromSupplier(() -> fleetStats.snapshot(state, region, availabilityZone, instanceType));
+    }
+
+    @Override
+    public Mono<Boolean> isVMAvailable(String vmId) {
+        return getVM(vmId)
+                .map(vm -> vm.getState() == VM.VMState.RUNNING)
+                .defaultIfEmpty(false);
+    }
+
+    private Mono<VM> insertVM(VM vm) {
+        // Creates add load for good, so they are the first work refused under pressure.
+        return concurrencyLimiter.limitMono(AdaptiveConcurrencyLimiter.Priority.SHEDDABLE, () -> Mono.defer(() -> {
+                    if (vm.getName() == null || vm.getName().isBlank()) {
+                        return Mono.error(new InvalidRequestException("VM name is required"));
+                    }
+                    vmService.validateVMResources(vm.getResources());
+
+                    LocalDateTime now = LocalDateTime.now();
+                    vm.setCreatedAt(now);
+                    vm.setUpdatedAt(now);
+                    vm.setState(VM.VMState.PENDING);
+                    // Admission comes first so a full pipeline rejects before anything is written.
+                    ProvisioningPipeline.Ticket ticket = provisioningPipeline.admit(vm);
+                    PlacementEngine.Reservation reservation;
+                    try {
+                        reservation = placementEngine.reserve(vm);
+                    } catch (RuntimeException e) {
+                        ticket.cancel();
+                        throw e;
+                    }
+                    vm.setVersion(changeSequence.next());
+                    // The unique index on name arbitrates concurrent creates in one round trip.
+                    return concurrencyLimiter.sampleMono(reactiveVMRepository.insert(vm))
+                            .map(savedVM -> {
+                                fleetStats.add(savedVM);
+                                eventBus.publish(null, savedVM);
+                                ticket.enqueue(savedVM);
+                                log.info("Created VM with ID: {} in {}", savedVM.getId(),
+                                        savedVM.getAvailabilityZone());
+                                return vmCache.put(savedVM);
+                            })
+                            .doFinally(signal -> {
+                                reservation.release();
+                                ticket.cancel();
+                            });
+                })
+                .onErrorMap(DuplicateKeyException.class, e -> new VMNameTakenException(vm.getName()))
+                .onErrorMap(e -> !(e instanceof InvalidRequestException || e instanceof VMNameTakenException
+                                || e instanceof InsufficientCapacityException
+                                || e instanceof RetryLaterException),
+                        e -> failure("Failed to create VM", e)));
+    }
+
+    private Mono<VM> transition(String operation, String failureMessage, String vmId, Set<VM.VMState> expectedStates,
+                                VM.VMState target, String illegalMessage) {
+        // Terminations release capacity, so they are kept going as long as reads are.
+        AdaptiveConcurrencyLimiter.Priority priority = target == VM.VMState.TERMINATED
+                ? AdaptiveConcurrencyLimiter.Priority.CRITICAL : AdaptiveConcurrencyLimiter.Priority.NORMAL;
+        if (writeBehind.isEnabled()) {
+            return operationMetrics.timeMono(operation, () -> concurrencyLimiter.limitMono(priority, () -> Mono
+                    .fromCallable(() -> transitionEngine.transition(vmId, expectedStates, target))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(result -> result.orElseThrow(illegalMessage))
+                    .onErrorMap(e -> !(e instanceof VMException), e -> failure(failureMessage, e))));
+        }
+        return update(priority, operation, failureMessage, vmId, expectedStates, () -> {
+            for (VM.VMState from : expectedStates) {
+                if (!from.canTransitionTo(target)) {
+                    throw new IllegalArgumentException("Transition " + from + " -> " + target + " is not allowed");
+                }
+            }
+            return VMChange.state(target);
+        }, illegalMessage);
+    }
+
+    /** Reactive form of {@link VMTransitionEngine#update}: one conditional write, a read only on a miss. */
+    private Mono<VM> update(AdaptiveConcurrencyLimiter.Priority priority, String operation, String failureMessage,
+                            String vmId, Set<VM.VMState> expectedStates, Supplier<VMChange> changes,
+                            String illegalMessage) {
+        // A pending write-behind transition must reach Mongo before the conditional write reads it.
+        Mono<Void> flushed = writeBehind.get(vmId).isPresent()
+                ? Mono.<Void>fromRunnable(() -> writeBehind.flushIfPending(vmId))
+                        .subscribeOn(Schedulers.boundedElastic())
+                : Mono.empty();
+        return operationMetrics.timeMono(operation, () -> concurrencyLimiter.limitMono(priority,
+                () -> flushed.then(Mono.defer(() -> {
+                            VMChange change = changes.get();
+                            // Mongo stores milliseconds; truncating keeps the derived document identical.
+                            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+                            long version = changeSequence.next();
+                            return concurrencyLimiter.sampleMono(
+                                            reactiveVMRepository.updateIfInState(vmId, expectedStates,
+                                                    change.toUpdate(now, version)))
+                                    .map(previous -> {
+                                        VM.VMState previousState = previous.getState();
+                                        fleetStats.remove(previous);
+                                        VM current = change.applyTo(previous, now, version);
+                                        fleetStats.add(current);
+                                        eventBus.publish(previousState, current);
+                                        return TransitionResult.applied(vmCache.put(current));
+                                    });
+                        }))
+                        .switchIfEmpty(Mono.defer(() -> classifyMiss(vmId)))
+                        .map(result -> result.orElseThrow(illegalMessage))
+                        .onErrorMap(e -> !(e instanceof VMException), e -> failure(failureMessage, e))));
+    }
+
+    private Mono<TransitionResult> classifyMiss(String vmId) {
+        return reactiveVMRepository.findById(vmId)
+                .map(current -> TransitionResult.illegal(vmId, vmCache.put(current).getState()))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    vmCache.invalidate(vmId);
+                    return TransitionResult.notFound(vmId);
+                }));
+    }
+
+    /** Wraps a fault; GlobalExceptionHandler logs it once at ERROR and renders the 500. */
+    private static VMException failure(String message, Throwable cause) {
+        return new VMException(message + ": " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,158 @@
+package com.cloud.compute.service.impl;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.TenantProperties;
+import com.cloud.compute.exception.TenantThrottledException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A global token bucket capping lifecycle mutations across the service, in front of
+ * per-tenant token buckets, each a single {@code AtomicLong} updated by CAS (the generic
+ * cell rate algorithm: the bucket stores when it will next be full rather than a token
+ * count). Buckets live in {@code stripes} independent maps so the idle sweep walks one
+ * small map at a time. A bucket idle past {@code idle-eviction} is full and
+ * indistinguishable from a new one, so dropping it loses nothing and memory tracks
+ * active tenants only.
+ */
+@Slf4j
+@Component
+public class TenantRateLimiter {
+    private final TenantProperties properties;
+    private final Map<String, Bucket>[] stripes;
+    private final Bucket global;
+    private final Counter throttled;
+    private final Counter globallyThrottled;
+
+    @SuppressWarnings("unchecked")
+    public TenantRateLimiter(TenantProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.stripes = new Map[properties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        long globalInterval = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getGlobalRate());
+        this.global = new Bucket(globalInterval, globalInterval * properties.getGlobalBurst(), System.nanoTime());
+        // Tenants are never tags: one series for all of them keeps cardinality fixed.
+        this.throttled = Counter.builder("compute.tenants.throttled")
+                .description("Requests rejected because the tenant exceeded its rate")
+                .tag("reason", "rate")
+                .register(meterRegistry);
+        this.globallyThrottled = Counter.builder("compute.tenants.throttled")
+                .description("Requests rejected because the tenant exceeded its rate")
+                .tag("reason", "global")
+                .register(meterRegistry);
+        Gauge.builder("compute.tenants.tracked", this, TenantRateLimiter::trackedTenants)
+                .description("Tenants with a rate limiter bucket in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token for {@code userId}, then one from the global bucket. A null
+     * {@code userId} (a request that could not be attributed) is charged to the global
+     * bucket only. The tenant is charged first so a throttled tenant never drains the
+     * global bucket.
+     *
+     * @throws TenantThrottledException if the tenant's or the global bucket is empty
+     */
+    public void acquire(String userId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (userId != null) {
+            Bucket bucket = stripeOf(userId).computeIfAbsent(userId, this::newBucket);
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                throttled.increment();
+                throw new TenantThrottledException(userId, "Rate limit exceeded for user " + userId,
+                        retryAfter(waitNanos));
+            }
+        }
+        long waitNanos = global.tryAcquire(now);
+        if (waitNanos > 0) {
+            globallyThrottled.increment();
+            throw new TenantThrottledException(userId, "Service-wide rate limit exceeded", retryAfter(waitNanos));
+        }
+    }
+
+    /** Rounds up so a client honouring Retry-After finds a token waiting. */
+    private static Duration retryAfter(long waitNanos) {
+        return Duration.ofSeconds(TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+    }
+
+    @Scheduled(fixedDelayString = "${compute.tenants.idle-eviction:PT10M}",
+               initialDelayString = "${compute.tenants.idle-eviction:PT10M}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - properties.getIdleEviction().toNanos();
+        int evicted = 0;
+        for (Map<String, Bucket> stripe : stripes) {
+            int before = stripe.size();
+            stripe.values().removeIf(bucket -> bucket.fullBefore(cutoff));
+            evicted += before - stripe.size();
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle tenant rate limiter buckets", evicted);
+        }
+    }
+
+    int trackedTenants() {
+        int tracked = 0;
+        for (Map<String, Bucket> stripe : stripes) {
+            tracked += stripe.size();
+        }
+        return tracked;
+    }
+
+    private Map<String, Bucket> stripeOf(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+
+    private Bucket newBucket(String userId) {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.rateFor(userId));
+        return new Bucket(intervalNanos, intervalNanos * properties.burstFor(userId), System.nanoTime());
+    }
+
+    /** Token bucket as a theoretical arrival time: the instant the bucket is full again. */
+    private static final class Bucket {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLong fullAt;
+
+        Bucket(long intervalNanos, long burstNanos, long now) {
+            this.intervalNanos = intervalNanos;
+            this.burstNanos = burstNanos;
+            this.fullAt = new AtomicLong(now);
+        }
+
+        /** Returns 0 if a token was taken, otherwise how long until one is available. */
+        long tryAcquire(long now) {
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long allowedAt = next - burstNanos;
+                if (allowedAt > now) {
+                    return allowedAt - now;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean fullBefore(long instant) {
+            return fullAt.get() - instant < 0;
+        }
+    }
+}
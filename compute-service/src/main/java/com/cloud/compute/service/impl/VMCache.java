@@ -0,0 +1,64 @@
+package com.cloud.compute.service.impl;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.CacheProperties;
+import com.cloud.compute.model.VM;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Bounded read-through cache of VM documents keyed by id. Every lifecycle write
+ * refreshes or invalidates its entry, so reads on this instance never lag its own
+ * writes; the TTL only bounds staleness from writes made elsewhere. Absent VMs are
+ * not cached.
+ */
+@Component
+public class VMCache {
+    private final Cache<String, VM> cache;
+    private final boolean enabled;
+
+    public VMCache(CacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "vms");
+    }
+
+    public Optional<VM> get(String vmId, Function<String, Optional<VM>> loader) {
+        if (!enabled) {
+            return loader.apply(vmId);
+        }
+        return Optional.ofNullable(cache.get(vmId, id -> loader.apply(id).orElse(null)));
+    }
+
+    /** Cached entry only, for callers that load asynchronously themselves. */
+    public Optional<VM> getIfPresent(String vmId) {
+        return enabled ? Optional.ofNullable(cache.getIfPresent(vmId)) : Optional.empty();
+    }
+
+    public VM put(VM vm) {
+        if (enabled && vm.getId() != null) {
+            cache.put(vm.getId(), vm);
+        }
+        return vm;
+    }
+
+    public void invalidate(String vmId) {
+        cache.invalidate(vmId);
+    }
+
+    public void invalidateAll(Collection<String> vmIds) {
+        cache.invalidateAll(vmIds);
+    }
+}
@@ -0,0 +1,48 @@
+package com.cloud.compute.service.impl;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.cloud.compute.model.VM;
+
+/**
+ * A field-level change to a VM, expressed both as the Mongo {@link Update} to send and
+ * as the same change applied to an in-memory document, so callers can derive the new
+ * document from the previous one without a second read.
+ */
+public final class VMChange {
+    private final Update update;
+    private final Consumer<VM> apply;
+
+    private VMChange(Update update, Consumer<VM> apply) {
+        this.update = update;
+        this.apply = apply;
+    }
+
+    public static VMChange state(VM.VMState state) {
+        return new VMChange(new Update().set("state", state), vm -> vm.setState(state));
+    }
+
+    public static VMChange resources(VM.ResourceSpec resources) {
+        return new VMChange(new Update().set("resources", resources), vm -> vm.setResources(resources));
+    }
+
+    public static VMChange networkConfig(VM.NetworkConfig networkConfig) {
+        return new VMChange(new Update().set("networkConfig", networkConfig), vm -> vm.setNetworkConfig(networkConfig));
+    }
+
+    /** The Mongo update for this change, stamped with {@code updatedAt} and {@code version}. */
+    Update toUpdate(LocalDateTime updatedAt, long version) {
+        return update.set("updatedAt", updatedAt).set("version", version);
+    }
+
+    /** Applies this change, stamped with {@code updatedAt} and {@code version}, to {@code vm} in place. */
+    VM applyTo(VM vm, LocalDateTime updatedAt, long version) {
+        apply.accept(vm);
+        vm.setUpdatedAt(updatedAt);
+        vm.setVersion(version);
+        return vm;
+    }
+}
@@ -0,0 +1,171 @@
+package com.cloud.compute.service.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.EventProperties;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMEvent;
+import com.cloud.compute.model.VMEventFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-process fan-out of committed VM state transitions to event stream subscribers.
+ * The last {@code replay-capacity} events stay in a ring, so a client reconnecting with
+ * its Last-Event-ID picks up where it left off. Each subscriber buffers at most
+ * {@code subscriber-buffer} VMs: a newer event for a VM replaces one not yet delivered,
+ * and a subscriber behind on more VMs than that is dropped and told to resync.
+ *
+ * <p>Only transitions committed by this instance are published.
+ */
+@Component
+public class VMEventBus {
+    private final EventProperties properties;
+    private final VMEvent[] ring;
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+    private final Object publishLock = new Object();
+    private final long firstId;
+    // Guarded by publishLock.
+    private long nextId;
+    private final Counter published;
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    public VMEventBus(EventProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ring = new VMEvent[properties.getReplayCapacity()];
+        // Starting from the clock keeps ids increasing across restarts, so an id from a
+        // previous run falls before the ring and gets a resync rather than wrong events.
+        this.firstId = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.nextId = firstId;
+        this.published = Counter.builder("compute.events.published")
+                .description("VM state transitions published to event streams")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("compute.events.coalesced")
+                .description("Undelivered events replaced by a newer event for the same VM")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("compute.events.dropped")
+                .description("Subscribers dropped for falling too far behind")
+                .register(meterRegistry);
+        Gauge.builder("compute.events.subscribers", subscribers, Set::size)
+                .register(meterRegistry);
+    }
+
+    /** Publishes {@code current}'s move from {@code previousState} (null for a create); no-op if unchanged. */
+    public void publish(VM.VMState previousState, VM current) {
+        if (!properties.isEnabled() || previousState == current.getState()) {
+            return;
+        }
+        List<Subscription> ready = new ArrayList<>();
+        synchronized (publishLock) {
+            VMEvent event = VMEvent.of(nextId++, previousState, current);
+            ring[slot(event.getId())] = event;
+            for (Subscription subscription : subscribers) {
+                if (subscription.offer(event)) {
+                    ready.add(subscription);
+                }
+            }
+        }
+        published.increment();
+        // Outside the lock: a subscriber may drain, and so serialize and write, inline.
+        ready.forEach(subscription -> subscription.onReady.run());
+    }
+
+    /**
+     * Registers a subscriber. With a {@code lastEventId}, the retained events after it are
+     * queued first; if some of them are gone the subscription starts with
+     * {@link Subscription#isResyncRequired()} set. {@code onReady} runs, on the publishing
+     * thread, whenever events are queued; it is never run by this call.
+     */
+    public Subscription subscribe(VMEventFilter filter, Long lastEventId, Runnable onReady) {
+        synchronized (publishLock) {
+            long oldest = Math.max(firstId, nextId - ring.length);
+            boolean replayable = lastEventId == null || (lastEventId >= oldest - 1 && lastEventId < nextId);
+            Subscription subscription = new Subscription(filter, onReady, !replayable);
+            if (lastEventId != null && replayable) {
+                for (long id = lastEventId + 1; id < nextId; id++) {
+                    subscription.offer(ring[slot(id)]);
+                }
+            }
+            if (!subscription.overflowed) {
+                subscribers.add(subscription);
+            }
+            return subscription;
+        }
+    }
+
+    private int slot(long id) {
+        return (int) (id % ring.length);
+    }
+
+    /** One subscriber's bounded, coalescing buffer, drained by a single thread at a time. */
+    public final class Subscription implements AutoCloseable {
+        private final VMEventFilter filter;
+        private final Runnable onReady;
+        private final boolean resyncRequired;
+        // Guarded by this; one entry per VM, in delivery order.
+        private final LinkedHashMap<String, VMEvent> buffer = new LinkedHashMap<>();
+        private volatile boolean overflowed;
+
+        private Subscription(VMEventFilter filter, Runnable onReady, boolean resyncRequired) {
+            this.filter = filter;
+            this.onReady = onReady;
+            this.resyncRequired = resyncRequired;
+        }
+
+        /** Next undelivered event, or null. */
+        public synchronized VMEvent poll() {
+            Iterator<VMEvent> events = buffer.values().iterator();
+            if (!events.hasNext()) {
+                return null;
+            }
+            VMEvent event = events.next();
+            events.remove();
+            return event;
+        }
+
+        /** True once this subscriber fell too far behind; it gets no more events. */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        /** True if events after the requested Last-Event-ID were no longer retained. */
+        public boolean isResyncRequired() {
+            return resyncRequired;
+        }
+
+        @Override
+        public void close() {
+            subscribers.remove(this);
+        }
+
+        /** Queues a matching event; returns true if the subscriber should be signalled. */
+        private synchronized boolean offer(VMEvent event) {
+            if (overflowed || !filter.matches(event)) {
+                return false;
+            }
+            // Removing first moves the VM to the back, so events stay in id order.
+            if (buffer.remove(event.getVmId()) != null) {
+                coalesced.increment();
+            }
+            buffer.put(event.getVmId(), event);
+            if (buffer.size() > properties.getSubscriberBuffer()) {
+                overflowed = true;
+                buffer.clear();
+                subscribers.remove(this);
+                dropped.increment();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.cloud.compute.service.impl;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.exception.IllegalStateTransitionException;
+import com.cloud.compute.exception.InsufficientCapacityException;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.exception.RetryLaterException;
+import com.cloud.compute.exception.VMNameTakenException;
+import com.cloud.compute.exception.VMNotFoundException;
+import com.cloud.compute.service.VMResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+/**
+ * Latency timers for service operations, tagged by operation and outcome only. Both tag
+ * sets are closed, so the series count is fixed; ids and users never become tags.
+ */
+@Component
+public class VMOperationMetrics {
+    static final String TIMER = "compute.vm.operations";
+
+    public enum Outcome {
+        SUCCESS,
+        ILLEGAL_STATE,
+        NOT_FOUND,
+        INVALID,
+        CONFLICT,
+        THROTTLED,
+        ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+
+        static Outcome of(Throwable throwable) {
+            if (throwable == null) {
+                return SUCCESS;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            if (cause instanceof IllegalStateTransitionException) {
+                return ILLEGAL_STATE;
+            }
+            if (cause instanceof VMNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (cause instanceof InvalidRequestException) {
+                return INVALID;
+            }
+            if (cause instanceof VMNameTakenException || cause instanceof InsufficientCapacityException) {
+                return CONFLICT;
+            }
+            if (cause instanceof RetryLaterException) {
+                return THROTTLED;
+            }
+            return ERROR;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public VMOperationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Times {@code call} from invocation until its future completes. */
+    public <T> CompletableFuture<T> timeAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        Timer[] byOutcome = timers(operation);
+        long start = meterRegistry.config().clock().monotonicTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            stop(byOutcome, start, e);
+            throw e;
+        }
+        // A failed VMResult is tagged with its error even though the future completed normally.
+        return future.whenComplete((result, throwable) -> stop(byOutcome, start,
+                throwable == null && result instanceof VMResult outcome ? outcome.error() : throwable));
+    }
+
+    /** Times each subscription to the {@code Mono} until it completes or fails. */
+    public <T> Mono<T> timeMono(String operation, Supplier<Mono<T>> call) {
+        Timer[] byOutcome = timers(operation);
+        return Mono.defer(() -> {
+            long start = meterRegistry.config().clock().monotonicTime();
+            return call.get()
+                    .doOnSuccess(result -> stop(byOutcome, start, null))
+                    .doOnError(throwable -> stop(byOutcome, start, throwable));
+        });
+    }
+
+    public <T> T time(String operation, Supplier<T> call) {
+        Timer[] byOutcome = timers(operation);
+        long start = meterRegistry.config().clock().monotonicTime();
+        try {
+            T result = call.get();
+            stop(byOutcome, start, null);
+            return result;
+        } catch (RuntimeException e) {
+            stop(byOutcome, start, e);
+            throw e;
+        }
+    }
+
+    private void stop(Timer[] byOutcome, long start, Throwable throwable) {
+        long elapsed = meterRegistry.config().clock().monotonicTime() - start;
+        byOutcome[Outcome.of(throwable).ordinal()].record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    /** Registers every outcome up front so dashboards see zero-valued series, not gaps. */
+    private Timer[] timers(String operation) {
+        return timers.computeIfAbsent(operation, op -> {
+            Outcome[] outcomes = Outcome.values();
+            Timer[] byOutcome = new Timer[outcomes.length];
+            for (Outcome outcome : outcomes) {
+                byOutcome[outcome.ordinal()] = Timer.builder(TIMER)
+                        .description("Latency of VM service operations")
+                        .tag("operation", op)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+            }
+            return byOutcome;
+        });
+    }
+}
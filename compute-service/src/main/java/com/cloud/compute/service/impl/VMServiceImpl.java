@@ -1,22 +1,39 @@
 package com.cloud.compute.service.impl;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.cloud.compute.config.QueryProperties;
+import com.cloud.compute.exception.InfrastructureFailure;
+import com.cloud.compute.exception.InvalidRequestException;
+import com.cloud.compute.exception.RetryLaterException;
 import com.cloud.compute.exception.VMException;
+import com.cloud.compute.exception.VMNameTakenException;
+import com.cloud.compute.model.BulkAction;
+import com.cloud.compute.model.BulkOutcome;
+import com.cloud.compute.model.BulkRequest;
+import com.cloud.compute.model.BulkSummary;
+import com.cloud.compute.model.ChangePage;
+import com.cloud.compute.model.CursorPage;
+import com.cloud.compute.model.FleetStats;
 import com.cloud.compute.model.VM;
+import com.cloud.compute.model.VMFilter;
+import com.cloud.compute.model.VMProjection;
 import com.cloud.compute.repository.VMRepository;
+import com.cloud.compute.service.VMResult;
 import com.cloud.compute.service.VMService;
 
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,205 +41,204 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 @RequiredArgsConstructor
 public class VMServiceImpl implements VMService {
+    // Expected failures with fixed messages are shared; they carry no stack trace.
+    private static final InvalidRequestException MISSING_NAME = new InvalidRequestException("VM name is required");
+    private static final InvalidRequestException MISSING_RESOURCES =
+            new InvalidRequestException("Resource specification cannot be null");
+    private static final InvalidRequestException INVALID_CPU =
+            new InvalidRequestException("CPU cores must be greater than 0");
+    private static final InvalidRequestException INVALID_MEMORY =
+            new InvalidRequestException("Memory must be greater than 0");
+    private static final InvalidRequestException INVALID_STORAGE =
+            new InvalidRequestException("Storage must be greater than 0");
+    private static final InvalidRequestException INVALID_BANDWIDTH =
+            new InvalidRequestException("Network bandwidth cannot be negative");
+
     private final VMRepository vmRepository;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(10);
+    private final VMTransitionEngine transitionEngine;
+    private final BulkLifecycleExecutor bulkLifecycleExecutor;
+    private final VMCache vmCache;
+    private final WriteBehindBuffer writeBehind;
+    private final IdempotencyStore idempotencyStore;
+    private final FleetStatsTracker fleetStats;
+    private final PlacementEngine placementEngine;
+    private final ProvisioningPipeline provisioningPipeline;
+    private final ChangeSequence changeSequence;
+    private final VMEventBus eventBus;
+    private final QueryProperties queryProperties;
+    private final MongoCallLimiter mongoCallLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final VMOperationMetrics operationMetrics;
+    private final FairTaskExecutor taskExecutor;
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> createVM(VM vm) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                validateVMResources(vm.getResources());
-                if (vmRepository.existsByName(vm.getName())) {
-                    throw new VMException("VM with name " + vm.getName() + " already exists");
-                }
-                
-                vm.setCreatedAt(LocalDateTime.now());
-                vm.setUpdatedAt(LocalDateTime.now());
-                vm.setState(VM.VMState.PENDING);
-                
-                VM savedVM = vmRepository.save(vm);
-                log.info("Created VM with ID: {}", savedVM.getId());
-                return savedVM;
-            } catch (Exception e) {
-                log.error("Error creating VM: {}", e.getMessage());
-                throw new VMException("Failed to create VM: " + e.getMessage());
-            }
-        }, executorService);
+    public CompletableFuture<VMResult> createVM(VM vm) {
+        return operationMetrics.timeAsync("createVM", () -> insertVM(vm));
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public CompletableFuture<VMResult> createVM(VM vm, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return createVM(vm);
+        }
+        // Scope keys per user so two tenants cannot collide on the same key.
+        return operationMetrics.timeAsync("createVM",
+                () -> idempotencyStore.execute(vm.getUserId() + ":" + idempotencyKey, () -> insertVM(vm)));
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> startVM(String vmId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                if (vm.getState() != VM.VMState.STOPPED) {
-                    throw new VMException("VM is not in STOPPED state");
-                }
-                
-                vm.setState(VM.VMState.RUNNING);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
+    public CompletableFuture<VMResult> startVM(String vmId) {
+        return operationMetrics.timeAsync("startVM", () -> submit(AdaptiveConcurrencyLimiter.Priority.NORMAL, () -> {
+            VMResult result = transitionEngine
+                    .transition(vmId, EnumSet.of(VM.VMState.STOPPED), VM.VMState.RUNNING)
+                    .toResult("VM is not in STOPPED state");
+            if (result.isOk()) {
                 log.info("Started VM with ID: {}", vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error starting VM: {}", e.getMessage());
-                throw new VMException("Failed to start VM: " + e.getMessage());
             }
-        }, executorService);
+            return result;
+        }));
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> stopVM(String vmId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                if (vm.getState() != VM.VMState.RUNNING) {
-                    throw new VMException("VM is not in RUNNING state");
-                }
-                
-                vm.setState(VM.VMState.STOPPED);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
+    public CompletableFuture<VMResult> stopVM(String vmId) {
+        return operationMetrics.timeAsync("stopVM", () -> submit(AdaptiveConcurrencyLimiter.Priority.NORMAL, () -> {
+            VMResult result = transitionEngine
+                    .transition(vmId, EnumSet.of(VM.VMState.RUNNING), VM.VMState.STOPPED)
+                    .toResult("VM is not in RUNNING state");
+            if (result.isOk()) {
                 log.info("Stopped VM with ID: {}", vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error stopping VM: {}", e.getMessage());
-                throw new VMException("Failed to stop VM: " + e.getMessage());
             }
-        }, executorService);
+            return result;
+        }));
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> terminateVM(String vmId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                if (vm.getState() == VM.VMState.TERMINATED) {
-                    throw new VMException("VM is already terminated");
-                }
-                
-                vm.setState(VM.VMState.TERMINATED);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
+    public CompletableFuture<VMResult> terminateVM(String vmId) {
+        return operationMetrics.timeAsync("terminateVM",
+                () -> submit(AdaptiveConcurrencyLimiter.Priority.CRITICAL, () -> {
+            VMResult result = transitionEngine
+                    .transition(vmId, VM.VMState.TERMINATED)
+                    .toResult("VM is already terminated");
+            if (result.isOk()) {
                 log.info("Terminated VM with ID: {}", vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error terminating VM: {}", e.getMessage());
-                throw new VMException("Failed to terminate VM: " + e.getMessage());
             }
-        }, executorService);
+            return result;
+        }));
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> modifyVM(String vmId, VM.VMState newState) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                vm.setState(newState);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
+    public CompletableFuture<VMResult> modifyVM(String vmId, VM.VMState newState) {
+        return operationMetrics.timeAsync("modifyVM", () -> submit(AdaptiveConcurrencyLimiter.Priority.NORMAL, () -> {
+            VMResult result = transitionEngine
+                    .transition(vmId, newState)
+                    .toResult("VM cannot move to " + newState + " from its current state");
+            if (result.isOk()) {
                 log.info("Modified VM state to {} for VM ID: {}", newState, vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error modifying VM state: {}", e.getMessage());
-                throw new VMException("Failed to modify VM state: " + e.getMessage());
             }
-        }, executorService);
+            return result;
+        }));
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> updateResources(String vmId, VM.ResourceSpec newResources) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                validateVMResources(newResources);
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                if (vm.getState() != VM.VMState.STOPPED) {
-                    throw new VMException("VM must be stopped to update resources");
-                }
-                
-                vm.setResources(newResources);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
-                log.info("Updated resources for VM ID: {}", vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error updating VM resources: {}", e.getMessage());
-                throw new VMException("Failed to update VM resources: " + e.getMessage());
+    public CompletableFuture<VMResult> updateResources(String vmId, VM.ResourceSpec newResources) {
+        return operationMetrics.timeAsync("updateResources", () -> {
+            InvalidRequestException invalid = checkResources(newResources);
+            if (invalid != null) {
+                return CompletableFuture.completedFuture(VMResult.failed(invalid));
             }
-        }, executorService);
+            return submit(AdaptiveConcurrencyLimiter.Priority.NORMAL, () -> {
+                VMResult result = transitionEngine
+                        .update(vmId, EnumSet.of(VM.VMState.STOPPED), VMChange.resources(newResources))
+                        .toResult("VM must be stopped to update resources");
+                if (result.isOk()) {
+                    log.info("Updated resources for VM ID: {}", vmId);
+                }
+                return result;
+            });
+        });
     }
 
     @Override
     @Transactional
     @CircuitBreaker(name = "vmService")
-    @RateLimiter(name = "vmService")
-    public CompletableFuture<VM> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                VM vm = getVM(vmId).orElseThrow(() -> new VMException("VM not found: " + vmId));
-                if (vm.getState() != VM.VMState.STOPPED) {
-                    throw new VMException("VM must be stopped to update network configuration");
-                }
-                
-                vm.setNetworkConfig(newConfig);
-                vm.setUpdatedAt(LocalDateTime.now());
-                
-                VM updatedVM = vmRepository.save(vm);
+    public CompletableFuture<VMResult> updateNetworkConfig(String vmId, VM.NetworkConfig newConfig) {
+        return operationMetrics.timeAsync("updateNetworkConfig",
+                () -> submit(AdaptiveConcurrencyLimiter.Priority.NORMAL, () -> {
+            VMResult result = transitionEngine
+                    .update(vmId, EnumSet.of(VM.VMState.STOPPED), VMChange.networkConfig(newConfig))
+                    .toResult("VM must be stopped to update network configuration");
+            if (result.isOk()) {
                 log.info("Updated network configuration for VM ID: {}", vmId);
-                return updatedVM;
-            } catch (Exception e) {
-                log.error("Error updating VM network config: {}", e.getMessage());
-                throw new VMException("Failed to update VM network configuration: " + e.getMessage());
             }
-        }, executorService);
+            return result;
+        }));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> resolveBulkTargets(BulkRequest request) {
+        return bulkLifecycleExecutor.resolveTargets(request);
+    }
+
+    @Override
+    @CircuitBreaker(name = "vmService")
+    public CompletableFuture<BulkSummary> bulkTransition(BulkAction action, List<String> vmIds,
+                                                         Consumer<List<BulkOutcome>> progress) {
+        return operationMetrics.timeAsync("bulkTransition",
+                () -> bulkLifecycleExecutor.execute(action, vmIds, progress));
     }
 
     @Override
     public Optional<VM> getVM(String vmId) {
-        return vmRepository.findById(vmId);
+        return operationMetrics.time("getVM", () -> concurrencyLimiter.limit(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL,
+                () -> vmCache.get(vmId, id -> writeBehind.get(id).or(() -> vmRepository.findById(id)))));
     }
 
     @Override
-    public List<VM> getVMsByUserId(String userId) {
-        return vmRepository.findByUserId(userId);
+    public <T extends VMProjection> CursorPage<T> getVMs(VMFilter filter, String cursor, Integer limit,
+                                                          Class<T> view) {
+        return operationMetrics.time("listVMs", () -> concurrencyLimiter.limit(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL, () -> {
+                    int pageSize = CursorPages.pageSize(limit, queryProperties);
+                    // Fetch one extra document to learn whether another page exists.
+                    return CursorPages.of(
+                            vmRepository.findPage(filter, CursorPages.decode(cursor), pageSize + 1, view), pageSize);
+                }));
     }
 
     @Override
-    public List<VM> getVMsByState(VM.VMState state) {
-        return vmRepository.findByState(state);
+    public <T extends VMProjection> Stream<T> streamVMs(VMFilter filter, Class<T> view) {
+        return vmRepository.streamMatching(filter, queryProperties.getStreamBatchSize(), view);
     }
 
     @Override
-    public List<VM> getVMsByRegion(String region) {
-        return vmRepository.findByRegionAndAvailabilityZone(region, null);
+    public <T extends VMProjection> ChangePage<T> getChanges(String since, Integer limit, Class<T> view) {
+        return operationMetrics.time("getChanges", () -> concurrencyLimiter.limit(
+                AdaptiveConcurrencyLimiter.Priority.CRITICAL, () -> {
+                    int pageSize = CursorPages.pageSize(limit, queryProperties);
+                    CursorPages.ChangePosition from = CursorPages.decodeChange(since);
+                    long settled = changeSequence.settled();
+                    return CursorPages.changes(vmRepository.findChanges(
+                            from.version(), from.id(), settled, pageSize + 1, view), pageSize, from);
+                }));
     }
 
     @Override
-    public List<VM> getVMsByAvailabilityZone(String availabilityZone) {
-        return vmRepository.findByRegionAndAvailabilityZone(null, availabilityZone);
+    public FleetStats getFleetStats(VM.VMState state, String region, String availabilityZone, String instanceType) {
+        return fleetStats.snapshot(state, region, availabilityZone, instanceType);
     }
 
     @Override
@@ -239,20 +255,94 @@ public class VMServiceImpl implements VMService {
 
     @Override
     public void validateVMResources(VM.ResourceSpec resources) {
+        InvalidRequestException invalid = checkResources(resources);
+        if (invalid != null) {
+            throw invalid;
+        }
+    }
+
+    /** The first problem with {@code resources}, or null if they are valid. */
+    private static InvalidRequestException checkResources(VM.ResourceSpec resources) {
         if (resources == null) {
-            throw new VMException("Resource specification cannot be null");
+            return MISSING_RESOURCES;
         }
         if (resources.getCpuCores() <= 0) {
-            throw new VMException("CPU cores must be greater than 0");
+            return INVALID_CPU;
         }
         if (resources.getMemoryGB() <= 0) {
-            throw new VMException("Memory must be greater than 0");
+            return INVALID_MEMORY;
         }
         if (resources.getStorageGB() <= 0) {
-            throw new VMException("Storage must be greater than 0");
+            return INVALID_STORAGE;
         }
         if (resources.getNetworkBandwidthMbps() < 0) {
-            throw new VMException("Network bandwidth cannot be negative");
+            return INVALID_BANDWIDTH;
+        }
+        return null;
+    }
+
+    private CompletableFuture<VMResult> insertVM(VM vm) {
+        InvalidRequestException invalid = vm.getName() == null || vm.getName().isBlank()
+                ? MISSING_NAME : checkResources(vm.getResources());
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(VMResult.failed(invalid));
+        }
+        // Creates add load for good, so they are the first work refused under pressure.
+        return submit(AdaptiveConcurrencyLimiter.Priority.SHEDDABLE, () -> {
+            vm.setCreatedAt(LocalDateTime.now());
+            vm.setUpdatedAt(LocalDateTime.now());
+            vm.setState(VM.VMState.PENDING);
+
+            // Admission comes first so a full pipeline rejects before anything is written.
+            ProvisioningPipeline.Ticket ticket = provisioningPipeline.admit(vm);
+            PlacementEngine.Reservation reservation = null;
+            try {
+                reservation = placementEngine.reserve(vm);
+                vm.setVersion(changeSequence.next());
+                // The unique index on name arbitrates concurrent creates in one round trip.
+                VM savedVM = vmCache.put(mongoCallLimiter.call(() -> vmRepository.insert(vm)));
+                fleetStats.add(savedVM);
+                eventBus.publish(null, savedVM);
+                ticket.enqueue(savedVM);
+                log.info("Created VM with ID: {} in {}", savedVM.getId(), savedVM.getAvailabilityZone());
+                return VMResult.ok(savedVM);
+            } catch (DuplicateKeyException e) {
+                return VMResult.failed(new VMNameTakenException(vm.getName()));
+            } finally {
+                if (reservation != null) {
+                    reservation.release();
+                }
+                ticket.cancel();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code task} on the tenant-fair executor under a concurrency permit and a Mongo
+     * permit. Load shed at any of those steps comes back as a failed result too.
+     */
+    private CompletableFuture<VMResult> submit(AdaptiveConcurrencyLimiter.Priority priority,
+                                               Supplier<VMResult> task) {
+        try {
+            return concurrencyLimiter.limitAsync(priority, () -> CompletableFuture.supplyAsync(
+                    () -> attempt(() -> mongoCallLimiter.hold(task)), taskExecutor));
+        } catch (RetryLaterException e) {
+            return CompletableFuture.completedFuture(VMResult.failed(e));
+        }
+    }
+
+    /**
+     * Returns expected failures thrown by {@code task} as results, so they reach the caller
+     * without a CompletionException around them. Faults propagate untouched.
+     */
+    private static VMResult attempt(Supplier<VMResult> task) {
+        try {
+            return task.get();
+        } catch (VMException e) {
+            if (InfrastructureFailure.isInfrastructure(e)) {
+                throw e;
+            }
+            return VMResult.failed(e);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package com.cloud.compute.service.impl;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.model.VM;
+import com.cloud.compute.repository.VMRepository;
+import com.cloud.compute.service.TransitionResult;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Executes VM state changes as a single conditional findAndModify on
+ * {@code {_id, state: expected}}. Legal transitions come from {@link VM.VMState}.
+ * With write-behind enabled, state transitions go through {@link WriteBehindBuffer}
+ * instead and reach Mongo with its next flush. Applied state changes are published to
+ * {@link VMEventBus}.
+ */
+@Component
+@RequiredArgsConstructor
+public class VMTransitionEngine {
+    private final VMRepository vmRepository;
+    private final MongoCallLimiter mongoCallLimiter;
+    private final VMCache vmCache;
+    private final FleetStatsTracker fleetStats;
+    private final WriteBehindBuffer writeBehind;
+    private final ChangeSequence changeSequence;
+    private final VMEventBus eventBus;
+
+    /** Moves the VM to {@code target} from any state that may legally reach it. */
+    public TransitionResult transition(String vmId, VM.VMState target) {
+        return transition(vmId, VM.VMState.sourcesOf(target), target);
+    }
+
+    public TransitionResult transition(String vmId, Set<VM.VMState> expectedStates, VM.VMState target) {
+        for (VM.VMState from : expectedStates) {
+            if (!from.canTransitionTo(target)) {
+                throw new IllegalArgumentException("Transition " + from + " -> " + target + " is not allowed");
+            }
+        }
+        if (writeBehind.isEnabled()) {
+            return stage(vmId, expectedStates, target);
+        }
+        return update(vmId, expectedStates, VMChange.state(target));
+    }
+
+    /** Applies {@code change} (plus updatedAt) only while the VM is in one of {@code expectedStates}. */
+    public TransitionResult update(String vmId, Set<VM.VMState> expectedStates, VMChange change) {
+        // The conditional write below must see this VM's latest state.
+        writeBehind.flushIfPending(vmId);
+        // Mongo stores milliseconds; truncating keeps the locally derived document identical to the stored one.
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        long version = changeSequence.next();
+        return mongoCallLimiter.call(
+                        () -> vmRepository.updateIfInState(vmId, expectedStates, change.toUpdate(now, version)))
+                .map(previous -> {
+                    VM.VMState previousState = previous.getState();
+                    fleetStats.remove(previous);
+                    VM current = change.applyTo(previous, now, version);
+                    fleetStats.add(current);
+                    eventBus.publish(previousState, current);
+                    return TransitionResult.applied(vmCache.put(current));
+                })
+                .orElseGet(() -> classifyMiss(vmId));
+    }
+
+    private TransitionResult stage(String vmId, Set<VM.VMState> expectedStates, VM.VMState target) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        WriteBehindBuffer.Staged staged = writeBehind.stage(
+                vmId, id -> vmCache.get(id, this::findById), expectedStates, target, now);
+        if (staged.previous().isEmpty()) {
+            vmCache.invalidate(vmId);
+            return TransitionResult.notFound(vmId);
+        }
+        if (staged.current().isEmpty()) {
+            return TransitionResult.illegal(vmId, staged.previous().get().getState());
+        }
+        writeBehind.awaitDurable(staged);
+        fleetStats.remove(staged.previous().get());
+        fleetStats.add(staged.current().get());
+        eventBus.publish(staged.previous().get().getState(), staged.current().get());
+        return TransitionResult.applied(staged.current().get());
+    }
+
+    private TransitionResult classifyMiss(String vmId) {
+        // Only the failure path pays for a second round trip, and it refreshes the cache.
+        Optional<VM> current = findById(vmId);
+        if (current.isEmpty()) {
+            vmCache.invalidate(vmId);
+            return TransitionResult.notFound(vmId);
+        }
+        return TransitionResult.illegal(vmId, vmCache.put(current.get()).getState());
+    }
+
+    private Optional<VM> findById(String vmId) {
+        return mongoCallLimiter.call(() -> vmRepository.findById(vmId));
+    }
+}
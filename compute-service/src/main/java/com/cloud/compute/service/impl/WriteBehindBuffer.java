@@ -0,0 +1,369 @@
+package com.cloud.compute.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.cloud.compute.config.WriteBehindProperties;
+import com.cloud.compute.exception.RetryLaterException;
+import com.cloud.compute.model.VM;
+import com.cloud.compute.repository.VMRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind for state transitions, active when {@code compute.write-behind.enabled}
+ * is set. A transition is checked against the VM's latest local state, recorded in
+ * {@link WriteBehindJournal} and acknowledged once the journal is synced; Mongo sees it
+ * with the next flush. Pending writes are coalesced per VM, so a VM started and stopped
+ * within one interval costs a single write, and each flush is a few unordered bulk
+ * writes of {@code flush-size} VMs.
+ *
+ * <p>Until a VM's write is flushed, {@link #get} returns its latest document; callers
+ * about to write the same VMs to Mongo directly call {@link #flushIfPending} first.
+ */
+@Slf4j
+@Component
+public class WriteBehindBuffer implements ApplicationRunner, DisposableBean {
+    private static final Duration FLUSH_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final WriteBehindProperties properties;
+    private final VMRepository vmRepository;
+    private final MongoCallLimiter mongoCallLimiter;
+    private final VMCache vmCache;
+    private final ChangeSequence changeSequence;
+    private final WriteBehindJournal journal;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    /** Bumped before flushed entries are removed, so a stage that loaded its VM earlier retries. */
+    private final AtomicLong removals = new AtomicLong();
+    private final Object flushLock = new Object();
+    private final Counter flushed;
+    private final Counter flushFailures;
+    private final Timer flushTimer;
+    private volatile boolean running;
+    private Thread flusher;
+
+    private record Pending(VM vm, long seq) {
+    }
+
+    /**
+     * Outcome of {@link #stage}: {@code previous} is empty if the VM does not exist, and
+     * {@code current} is empty if it was not in an expected state.
+     */
+    public record Staged(Optional<VM> previous, Optional<VM> current, long seq) {
+    }
+
+    public WriteBehindBuffer(WriteBehindProperties properties, VMRepository vmRepository,
+                             MongoCallLimiter mongoCallLimiter, VMCache vmCache, ChangeSequence changeSequence,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.vmRepository = vmRepository;
+        this.mongoCallLimiter = mongoCallLimiter;
+        this.vmCache = vmCache;
+        this.changeSequence = changeSequence;
+        this.flushed = Counter.builder("compute.writebehind.flushed")
+                .description("VM states written to Mongo by write-behind flushes")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("compute.writebehind.flush.failures")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("compute.writebehind.flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("compute.writebehind.pending", pending, Map::size)
+                .description("VMs with a transition not yet written to Mongo")
+                .register(meterRegistry);
+
+        if (!properties.isEnabled()) {
+            this.journal = null;
+            return;
+        }
+        this.journal = new WriteBehindJournal(Path.of(properties.getJournalDir()));
+        recover();
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /** Latest document of a VM with an unflushed transition. */
+    public Optional<VM> get(String vmId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Pending entry = pending.get(vmId);
+        return entry == null ? Optional.empty() : Optional.of(entry.vm());
+    }
+
+    /**
+     * Applies {@code target} to the VM's latest state if it is one of {@code expectedStates}
+     * and journals it. The caller must {@link #awaitDurable} before acknowledging.
+     *
+     * @param loader reads the VM when it has no pending write
+     */
+    public Staged stage(String vmId, Function<String, Optional<VM>> loader, Set<VM.VMState> expectedStates,
+                        VM.VMState target, LocalDateTime updatedAt) {
+        while (true) {
+            long observedRemovals = removals.get();
+            boolean hadPending = pending.containsKey(vmId);
+            Optional<VM> loaded = hadPending ? Optional.empty() : loader.apply(vmId);
+            Staged[] result = new Staged[1];
+            pending.compute(vmId, (id, entry) -> {
+                if (entry == null && (hadPending || removals.get() != observedRemovals)) {
+                    // A flush dropped an entry since the load; what was loaded may predate it.
+                    return null;
+                }
+                if (entry == null && loaded.isEmpty()) {
+                    result[0] = new Staged(Optional.empty(), Optional.empty(), 0);
+                    return null;
+                }
+                VM previous = entry != null ? entry.vm() : loaded.get();
+                if (!expectedStates.contains(previous.getState())) {
+                    result[0] = new Staged(Optional.of(previous), Optional.empty(), 0);
+                    return entry;
+                }
+                VM current = copy(previous);
+                current.setState(target);
+                current.setUpdatedAt(updatedAt);
+                current.setVersion(changeSequence.next());
+                long seq = journal.append(id, target, updatedAt);
+                // Under the entry's lock, so neither the cache nor the version goes back to an older write.
+                vmCache.put(current);
+                result[0] = new Staged(Optional.of(previous), Optional.of(current), seq);
+                return new Pending(current, seq);
+            });
+            if (result[0] != null) {
+                if (result[0].current().isPresent() && pending.size() >= properties.getFlushSize()) {
+                    LockSupport.unpark(flusher);
+                }
+                return result[0];
+            }
+        }
+    }
+
+    public void awaitDurable(Staged staged) {
+        journal.awaitDurable(staged.seq());
+    }
+
+    /**
+     * Flushes now if any of {@code vmIds} has a pending write, before the caller writes them
+     * directly.
+     *
+     * @throws RetryLaterException if the flush failed; the caller's write would otherwise
+     *         land on stale state and supersede the acknowledged transition
+     */
+    public void flushIfPending(Collection<String> vmIds) {
+        if (!isEnabled() || pending.isEmpty()) {
+            return;
+        }
+        for (String vmId : vmIds) {
+            if (pending.containsKey(vmId)) {
+                flushOrRetryLater();
+                return;
+            }
+        }
+    }
+
+    public void flushIfPending(String vmId) {
+        if (isEnabled() && pending.containsKey(vmId)) {
+            flushOrRetryLater();
+        }
+    }
+
+    private void flushOrRetryLater() {
+        if (!flush()) {
+            throw new RetryLaterException("Pending transitions could not be written yet, retry later",
+                    FLUSH_RETRY_AFTER);
+        }
+    }
+
+    /** Writes every pending transition to Mongo; returns false if some could not be written. */
+    public boolean flush() {
+        if (!isEnabled()) {
+            return true;
+        }
+        synchronized (flushLock) {
+            long start = System.nanoTime();
+            // Everything journaled so far is either in this flush or superseded by a later entry.
+            List<Path> sealed = journal.seal();
+            List<Pending> batch = new ArrayList<>(pending.values());
+            boolean complete = true;
+            for (int from = 0; from < batch.size(); from += properties.getFlushSize()) {
+                List<Pending> chunk =
+                        restamp(batch.subList(from, Math.min(from + properties.getFlushSize(), batch.size())));
+                if (chunk.isEmpty()) {
+                    continue;
+                }
+                List<VM> states = chunk.stream().map(entry -> stateOf(entry.vm())).toList();
+                try {
+                    mongoCallLimiter.call(() -> vmRepository.applyStates(states));
+                } catch (RuntimeException e) {
+                    // Left pending with their segments; the next flush retries them.
+                    log.warn("Write-behind flush of {} VMs failed: {}", chunk.size(), e.getMessage());
+                    flushFailures.increment();
+                    complete = false;
+                    continue;
+                }
+                removals.incrementAndGet();
+                for (Pending entry : chunk) {
+                    pending.remove(entry.vm().getId(), entry);
+                }
+                flushed.increment(chunk.size());
+            }
+            if (complete) {
+                journal.delete(sealed);
+            }
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return complete;
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        flusher = new CustomizableThreadFactory("WriteBehind-").newThread(this::flushLoop);
+        flusher.start();
+        log.info("Write-behind enabled: flushing every {} or {} VMs", properties.getFlushInterval(),
+                properties.getFlushSize());
+    }
+
+    private void flushLoop() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        while (running) {
+            LockSupport.parkNanos(intervalNanos);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Write-behind flush failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (!isEnabled()) {
+            return;
+        }
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (!flush()) {
+            log.warn("{} VMs left in the write-behind journal; they are written on the next start", pending.size());
+        }
+        journal.close();
+    }
+
+    private void recover() {
+        Map<String, WriteBehindJournal.Entry> entries;
+        try {
+            entries = journal.recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover write-behind journal", e);
+        }
+        if (entries.isEmpty()) {
+            journal.delete(journal.seal());
+            return;
+        }
+        // Written before anything else reads Mongo, including the fleet statistics rebuild.
+        List<VM> states = entries.values().stream()
+                .map(entry -> {
+                    VM vm = new VM();
+                    vm.setId(entry.id());
+                    vm.setState(entry.state());
+                    vm.setUpdatedAt(entry.updatedAt());
+                    // A fresh version puts the replayed state back in the change feed's future.
+                    vm.setVersion(changeSequence.next());
+                    return vm;
+                })
+                .toList();
+        for (int from = 0; from < states.size(); from += properties.getFlushSize()) {
+            vmRepository.applyStates(states.subList(from, Math.min(from + properties.getFlushSize(), states.size())));
+        }
+        journal.delete(journal.seal());
+        log.info("Replayed {} write-behind transitions from {}", states.size(), properties.getJournalDir());
+    }
+
+    /**
+     * Gives each entry a fresh version just before it is written, so a flush that runs
+     * late or retries after a failure still lands ahead of change feed cursors. Entries a
+     * newer stage replaced meanwhile are skipped; the next flush writes their successor.
+     */
+    private List<Pending> restamp(List<Pending> entries) {
+        List<Pending> restamped = new ArrayList<>(entries.size());
+        for (Pending entry : entries) {
+            Pending[] result = new Pending[1];
+            pending.computeIfPresent(entry.vm().getId(), (id, current) -> {
+                if (current != entry) {
+                    return current;
+                }
+                VM vm = copy(current.vm());
+                vm.setVersion(changeSequence.next());
+                // Under the entry's lock, like stage, so the cache and Mongo agree on the version.
+                vmCache.put(vm);
+                result[0] = new Pending(vm, current.seq());
+                return result[0];
+            });
+            if (result[0] != null) {
+                restamped.add(result[0]);
+            }
+        }
+        return restamped;
+    }
+
+    private static VM stateOf(VM source) {
+        VM vm = new VM();
+        vm.setId(source.getId());
+        vm.setState(source.getState());
+        vm.setUpdatedAt(source.getUpdatedAt());
+        vm.setVersion(source.getVersion());
+        return vm;
+    }
+
+    private static VM copy(VM source) {
+        VM vm = new VM();
+        vm.setId(source.getId());
+        vm.setName(source.getName());
+        vm.setImageId(source.getImageId());
+        vm.setInstanceType(source.getInstanceType());
+        vm.setState(source.getState());
+        vm.setResources(source.getResources());
+        vm.setNetworkConfig(source.getNetworkConfig());
+        vm.setSecurityGroups(source.getSecurityGroups());
+        vm.setUserId(source.getUserId());
+        vm.setCreatedAt(source.getCreatedAt());
+        vm.setUpdatedAt(source.getUpdatedAt());
+        vm.setVersion(source.getVersion());
+        vm.setRegion(source.getRegion());
+        vm.setAvailabilityZone(source.getAvailabilityZone());
+        vm.setTags(source.getTags());
+        vm.setMetadata(source.getMetadata());
+        return vm;
+    }
+}
@@ -0,0 +1,206 @@
+package com.cloud.compute.service.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.cloud.compute.model.VM;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local journal of state transitions not yet written to Mongo, as JSON lines in numbered
+ * segments ({@code writes-<n>.log}). Appends only buffer; {@link #awaitDurable} is a
+ * group commit: the first caller to need an fsync performs one covering every append so
+ * far, and callers queued behind it usually find their entry already covered.
+ *
+ * <p>{@link #seal()} closes the current segment before a flush; once the flush has
+ * written everything the sealed segments hold, {@link #delete} drops them.
+ */
+@Slf4j
+class WriteBehindJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "writes-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    record Entry(long seq, String id, VM.VMState state, LocalDateTime updatedAt) {
+    }
+
+    private final Path dir;
+    private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final List<Path> sealed = new ArrayList<>();
+    // Guarded by appendLock.
+    private long seq;
+    private long segmentNumber;
+    private FileOutputStream segment;
+    private OutputStream out;
+    // Guarded by syncLock.
+    private long syncedSeq;
+
+    WriteBehindJournal(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Reads every segment left by a previous run, newest entry per VM winning, and opens
+     * a fresh segment. The old segments count as sealed until the caller deletes them.
+     */
+    Map<String, Entry> recover() throws IOException {
+        Files.createDirectories(dir);
+        Map<String, Entry> latest = new LinkedHashMap<>();
+        for (Path path : segments()) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        Entry entry = mapper.readValue(line, Entry.class);
+                        latest.put(entry.id(), entry);
+                        seq = Math.max(seq, entry.seq());
+                    } catch (IOException e) {
+                        // A torn final line from a crash mid-append; it was never acknowledged.
+                        log.warn("Ignoring unreadable write-behind entry in {}", path.getFileName());
+                        break;
+                    }
+                }
+            }
+            sealed.add(path);
+            segmentNumber = Math.max(segmentNumber, segmentNumber(path));
+        }
+        syncedSeq = seq;
+        openSegment();
+        return latest;
+    }
+
+    /** Buffers an entry; it is not durable until {@link #awaitDurable} returns for its seq. */
+    long append(String id, VM.VMState state, LocalDateTime updatedAt) {
+        synchronized (appendLock) {
+            long next = seq + 1;
+            try {
+                out.write(mapper.writeValueAsBytes(new Entry(next, id, state, updatedAt)));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to append to write-behind journal", e);
+            }
+            seq = next;
+            return next;
+        }
+    }
+
+    /** Blocks until the entry with {@code target} seq is on disk. */
+    void awaitDurable(long target) {
+        synchronized (syncLock) {
+            if (syncedSeq >= target) {
+                return;
+            }
+            long upTo;
+            FileOutputStream current;
+            synchronized (appendLock) {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to flush write-behind journal", e);
+                }
+                upTo = seq;
+                current = segment;
+            }
+            // Appenders keep buffering while this runs; the next sync picks them up.
+            try {
+                current.getChannel().force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync write-behind journal", e);
+            }
+            syncedSeq = upTo;
+        }
+    }
+
+    /** Closes the current segment and starts a new one; returns every segment sealed so far. */
+    List<Path> seal() {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                try {
+                    closeSegment();
+                    openSegment();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to rotate write-behind journal", e);
+                }
+                syncedSeq = seq;
+                return List.copyOf(sealed);
+            }
+        }
+    }
+
+    /** Deletes sealed segments whose entries have all reached Mongo. */
+    void delete(List<Path> segments) {
+        for (Path path : segments) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete write-behind segment {}: {}", path.getFileName(), e.getMessage());
+            }
+        }
+        synchronized (syncLock) {
+            sealed.removeAll(segments);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                closeSegment();
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentNumber++;
+        Path path = dir.resolve(SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX);
+        segment = new FileOutputStream(path.toFile(), true);
+        out = new BufferedOutputStream(segment, 64 * 1024);
+    }
+
+    private void closeSegment() throws IOException {
+        if (out != null) {
+            out.flush();
+            segment.getChannel().force(false);
+            out.close();
+            sealed.add(dir.resolve(SEGMENT_PREFIX + segmentNumber + SEGMENT_SUFFIX));
+            out = null;
+            segment = null;
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(WriteBehindJournal::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}